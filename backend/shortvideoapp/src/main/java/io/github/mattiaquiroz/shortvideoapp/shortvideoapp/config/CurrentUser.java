@@ -0,0 +1,15 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Injects the request's AuthenticatedUser into a controller parameter, or null when the
+// request carries no valid token. Handlers decide themselves how to answer that case.
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
@@ -0,0 +1,31 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.config;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthUtil;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthenticatedUser;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+// Resolves @CurrentUser parameters from the principal JwtAuthenticationFilter stored
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final AuthUtil authUtil;
+
+    public CurrentUserArgumentResolver(AuthUtil authUtil) {
+        this.authUtil = authUtil;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && AuthenticatedUser.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        return authUtil.getPrincipal();
+    }
+}
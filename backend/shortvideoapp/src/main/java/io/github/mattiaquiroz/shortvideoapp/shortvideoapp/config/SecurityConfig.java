@@ -32,6 +32,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/users/**").permitAll()
                 .requestMatchers("/api/videos/**").permitAll()
+                // Video streams accept a signed URL instead of a JWT; the controller checks either
+                .requestMatchers("/api/stream/video/**").permitAll()
                 .requestMatchers("/api/stream/**").authenticated()
                 .requestMatchers("/swagger-ui/**").permitAll()
                 .requestMatchers("/v3/api-docs/**").permitAll()
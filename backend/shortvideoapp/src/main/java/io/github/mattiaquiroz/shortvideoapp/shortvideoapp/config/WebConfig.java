@@ -1,19 +1,83 @@
 package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.config;
 
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MediaStore;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.VideoPackagingService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthUtil;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private AuthUtil authUtil;
+
+    // Multipart bodies are only parsed (and spooled to disk) once a handler asks for a part
+    // or parameter. The upload endpoints read the raw body through MultipartIngestService
+    // instead, which needs the container to leave the input stream untouched.
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver() {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver();
+        resolver.setResolveLazily(true);
+        return resolver;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Serve static files from the assets directory
+        // Serve static files from the assets directory. Content-addressed blobs and versioned
+        // stream packages never change under a given URL, so they can be cached forever.
+        // Videos sit two levels below assets/videos/ in both the current and the older
+        // per-user layout. Handlers resolve the part of the path that follows the pattern's
+        // fixed prefix, so each one is rooted at that prefix.
+        CacheControl immutable = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        registry.addResourceHandler("/assets/blobs/**")
+                .addResourceLocations(locations("assets/blobs"))
+                .setCacheControl(immutable);
+        registry.addResourceHandler("/assets/videos/*/*/" + VideoPackagingService.STREAM_DIR + "/**")
+                .addResourceLocations(locations("assets/videos"))
+                .setCacheControl(immutable);
+
+        // Everything else can be replaced at the same path (the default avatar, profile
+        // pictures, renditions), so it is only cached briefly and then revalidated
         registry.addResourceHandler("/assets/**")
-                .addResourceLocations("file:./assets/");
+                .addResourceLocations(locations("assets"))
+                .setCacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic().mustRevalidate());
+    }
+
+    // A directory on every volume, tried in order with the cold tier last, so a file is found
+    // wherever it currently lives
+    private String[] locations(String directory) {
+        List<Path> volumes = new ArrayList<>(mediaStore.getVolumes());
+        if (mediaStore.getColdVolume() != null) {
+            volumes.add(mediaStore.getColdVolume());
+        }
+        return volumes.stream()
+                .map(volume -> volume.resolve(directory).toUri().toString())
+                .map(uri -> uri.endsWith("/") ? uri : uri + "/")
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CurrentUserArgumentResolver(authUtil));
     }
 
     @Override
@@ -3,6 +3,7 @@ package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.controller;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.*;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthenticatedUser;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -168,12 +169,13 @@ public class AuthController {
 
             String token = authorizationHeader.substring(7);
             
-            if (!jwtUtil.validateToken(token)) {
+            AuthenticatedUser principal = jwtUtil.parse(token);
+            if (principal == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new AuthResponse(false, "Invalid or expired token"));
             }
 
-            Long userId = jwtUtil.extractUserId(token);
+            Long userId = principal.getUserId();
 
             Optional<User> userOptional = userRepository.findById(userId);
             if (userOptional.isEmpty()) {
@@ -46,7 +46,7 @@ public class MessageController {
     public ResponseEntity<?> sendMessage(@Valid @RequestBody CreateMessageRequest request, 
                                        HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -94,7 +94,7 @@ public class MessageController {
     @Operation(summary = "Get conversations", description = "Get all conversations for the current user")
     public ResponseEntity<?> getConversations(HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -116,7 +116,7 @@ public class MessageController {
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "15") int size,
         HttpServletRequest httpRequest) {
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -156,7 +156,7 @@ public class MessageController {
     @Operation(summary = "Get unread count", description = "Get the total number of unread messages")
     public ResponseEntity<?> getUnreadCount(HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -173,7 +173,7 @@ public class MessageController {
                                        @RequestParam String reaction,
                                        HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -204,7 +204,7 @@ public class MessageController {
     public ResponseEntity<?> deleteMessage(@PathVariable Long messageId, 
                                          HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -240,7 +240,7 @@ public class MessageController {
     public ResponseEntity<?> markConversationAsRead(@PathVariable Long userId, 
                                                   HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
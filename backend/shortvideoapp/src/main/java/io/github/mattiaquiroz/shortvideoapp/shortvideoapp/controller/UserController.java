@@ -5,20 +5,24 @@ import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.UpdateUserRequest;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.UserDTO;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MediaGarbageCollector;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MediaStore;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MultipartIngestService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UserSnapshotCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.StringUtils;
+import org.springframework.http.MediaType;
 import jakarta.servlet.http.HttpServletRequest;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthUtil;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.MultipartStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.io.IOException;
 
 import java.util.List;
@@ -37,6 +41,18 @@ public class UserController {
     @Autowired
     private AuthUtil authUtil;
 
+    @Autowired
+    private MultipartIngestService multipartIngest;
+
+    @Autowired
+    private MediaGarbageCollector mediaGarbageCollector;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private UserSnapshotCache userSnapshots;
+
     @GetMapping
     @Operation(summary = "Get all users", description = "Retrieve a list of all users")
     public ResponseEntity<List<UserDTO>> getAllUsers() {
@@ -50,7 +66,7 @@ public class UserController {
     @GetMapping("/{id}")
     @Operation(summary = "Get user by ID", description = "Retrieve a user by their ID")
     public ResponseEntity<?> getUserById(@PathVariable Long id, HttpServletRequest request) {
-        var currentUserOpt = authUtil.getCurrentUser(request);
+        var currentUserOpt = authUtil.getCurrentUserReference(request);
         Optional<User> user = userRepository.findById(id);
         if (user.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -79,7 +95,7 @@ public class UserController {
     @Operation(summary = "Update user", description = "Update an existing user's information")
     public ResponseEntity<?> updateUser(@PathVariable Long id, @Valid @RequestBody UpdateUserRequest request, HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -119,6 +135,7 @@ public class UserController {
             user.setPrivateAccount(request.getPrivateAccount());
         }
         User updatedUser = userRepository.save(user);
+        userSnapshots.invalidate(id);
         return ResponseEntity.ok(convertToDTO(updatedUser));
     }
 
@@ -126,7 +143,7 @@ public class UserController {
     @Operation(summary = "Partially update user", description = "Update only provided fields for a user")
     public ResponseEntity<?> patchUser(@PathVariable Long id, @RequestBody UpdateUserRequest request, HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -169,6 +186,7 @@ public class UserController {
             user.setPrivateAccount(request.getPrivateAccount());
         }
         User updatedUser = userRepository.save(user);
+        userSnapshots.invalidate(id);
         return ResponseEntity.ok(convertToDTO(updatedUser));
     }
 
@@ -176,7 +194,7 @@ public class UserController {
     @Operation(summary = "Delete user", description = "Delete a user account")
     public ResponseEntity<?> deleteUser(@PathVariable Long id, HttpServletRequest httpRequest) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        var currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -191,7 +209,10 @@ public class UserController {
         if (!userRepository.existsById(id)) {
             return ResponseEntity.notFound().build();
         }
+        // Soft-deleted videos are invisible to the cascade but would still block the user row
+        mediaGarbageCollector.purgeAllOf(id);
         userRepository.deleteById(id);
+        userSnapshots.invalidate(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -219,7 +240,7 @@ public class UserController {
     @Operation(summary = "Get all users for messaging", description = "Get all users for new message selection (excluding current user)")
     public ResponseEntity<?> getAllUsersForMessaging(HttpServletRequest request) {
         // Check if user is authenticated
-        var currentUserOpt = authUtil.getCurrentUser(request);
+        var currentUserOpt = authUtil.getCurrentUserReference(request);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -236,9 +257,10 @@ public class UserController {
         return ResponseEntity.ok(userDTOs);
     }
 
-    @PostMapping("/me/profile-picture")
+    // Streams the "file" part straight to its final location instead of spooling it first
+    @PostMapping(value = "/me/profile-picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Upload profile picture", description = "Upload a new profile picture for the authenticated user")
-    public ResponseEntity<?> uploadProfilePicture(@RequestParam("file") MultipartFile file, HttpServletRequest request) {
+    public ResponseEntity<?> uploadProfilePicture(HttpServletRequest request) {
         try {
             // Authenticate user
             var userOpt = authUtil.getCurrentUser(request);
@@ -247,29 +269,51 @@ public class UserController {
             }
             User user = userOpt.get();
 
-            // Validate file
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body("No file uploaded");
+            MultipartStream multipart = multipartIngest.open(request);
+            if (multipart == null) {
+                return ResponseEntity.badRequest().body("Expected a multipart/form-data body");
             }
-            String filename = StringUtils.cleanPath(file.getOriginalFilename());
-            String ext = filename.contains(".") ? filename.substring(filename.lastIndexOf('.')) : "";
-            String newFilename = "user_" + user.getId() + "_" + System.currentTimeMillis() + ext;
-            Path uploadDir = Paths.get("assets/users/user_" + user.getId());
+            Path uploadDir = mediaStore.locate("assets/users/user_" + user.getId());
             if (!Files.exists(uploadDir)) {
                 Files.createDirectories(uploadDir);
             }
-            Path filePath = uploadDir.resolve(newFilename);
-            file.transferTo(filePath);
+
+            String baseName = "user_" + user.getId() + "_" + System.currentTimeMillis();
+            MultipartIngestService.StoredFile stored = null;
+            for (MultipartStream.Part part; (part = multipart.nextPart()) != null; ) {
+                if ("file".equals(part.getName()) && part.isFile() && stored == null) {
+                    stored = multipartIngest.store(part, uploadDir.resolve(baseName + ".upload"),
+                            MultipartIngestService.Kind.IMAGE);
+                }
+            }
+
+            // Validate file
+            if (stored == null || stored.getSize() == 0) {
+                if (stored != null) {
+                    Files.deleteIfExists(stored.getPath());
+                }
+                return ResponseEntity.badRequest().body("No file uploaded");
+            }
+
+            // Name the file after what it actually contains
+            String newFilename = baseName + stored.getExtension();
+            Files.move(stored.getPath(), uploadDir.resolve(newFilename), StandardCopyOption.ATOMIC_MOVE);
 
             // Update user profile picture URL
-            user.setProfilePictureUrl("assets/users/user_" + user.getId() + "/" + System.currentTimeMillis() + ext);
+            String url = "assets/users/user_" + user.getId() + "/" + newFilename;
+            user.setProfilePictureUrl(url);
             userRepository.save(user);
+            userSnapshots.invalidate(user.getId());
 
             // Return the new URL (relative path)
             return ResponseEntity.ok().body(new java.util.HashMap<String, Object>() {{
                 put("success", true);
-                put("url", "assets/users/user_" + user.getId() + "/" + newFilename);
+                put("url", url);
             }});
+        } catch (MultipartStream.SizeLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload image: " + e.getMessage());
         }
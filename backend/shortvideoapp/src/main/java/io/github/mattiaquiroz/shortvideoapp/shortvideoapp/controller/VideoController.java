@@ -1,21 +1,37 @@
 package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.controller;
 
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.config.CurrentUser;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.CreateUploadRequest;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.CreateVideoRequest;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.CreateCommentRequest;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.CommentDTO;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.UploadSessionDTO;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.UserDTO;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto.VideoDTO;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Comment;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.CommentLike;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Like;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingStatus;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.CommentRepository;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.CommentLikeRepository;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.LikeRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.ProcessingJobRepository;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserRepository;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MultipartIngestService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.ResumableUploadService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.StreamDescriptorCache;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UniqueViewerCounter;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UploadSession;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.VideoIngestService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.VideoPackagingService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.ViewCounter;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthUtil;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthenticatedUser;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.MultipartStream;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.StreamUrlSigner;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -26,6 +42,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -35,11 +52,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.io.IOException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.springframework.transaction.annotation.Transactional;
-import java.security.SecureRandom;
 import org.springframework.data.domain.PageImpl;
 
 @RestController
@@ -65,15 +82,32 @@ public class VideoController {
     @Autowired
     private AuthUtil authUtil;
 
-    private static final String VIDEO_ID_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!_";
-    private static final SecureRandom RANDOM = new SecureRandom();
-    private String generateVideoId(int length) {
-        StringBuilder sb = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            sb.append(VIDEO_ID_CHARS.charAt(RANDOM.nextInt(VIDEO_ID_CHARS.length())));
-        }
-        return sb.toString();
-    }
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Autowired
+    private ViewCounter viewCounter;
+
+    @Autowired
+    private UniqueViewerCounter uniqueViewerCounter;
+
+    @Autowired
+    private StreamUrlSigner streamUrlSigner;
+
+    @Autowired
+    private VideoIngestService ingestService;
+
+    @Autowired
+    private ResumableUploadService resumableUploads;
+
+    @Autowired
+    private MultipartIngestService multipartIngest;
+
+    @Autowired
+    private ProcessingJobRepository processingJobRepository;
+
+    private static final int MAX_FORM_FIELD_BYTES = 4096;
+
 
     @GetMapping
     @Operation(summary = "Get all public videos", description = "Retrieve paginated list of public videos")
@@ -84,11 +118,12 @@ public class VideoController {
             HttpServletRequest request) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Video> videos;
-        Optional<User> currentUserOpt = authUtil.getCurrentUser(request);
+        Optional<User> currentUserOpt = authUtil.getCurrentUserReference(request);
         Long currentUserId = currentUserOpt.map(User::getId).orElse(null);
         switch (sortBy.toLowerCase()) {
             case "popular":
-                videos = videoRepository.findByIsPublicTrueOrderByViewsCountDesc(pageable);
+                // Distinct viewers first, so replays and refreshes don't buy ranking
+                videos = videoRepository.findByIsPublicTrueOrderByUniqueViewersDescViewsCountDesc(pageable);
                 break;
             case "liked":
                 videos = videoRepository.findByIsPublicTrueOrderByLikesCountDesc(pageable);
@@ -103,21 +138,21 @@ public class VideoController {
             .filter(v -> !v.getUser().isPrivateAccount() || (currentUserId != null && v.getUser().getId().equals(currentUserId)))
             .toList();
         Page<Video> filteredVideos = new PageImpl<>(filteredList, pageable, videos.getTotalElements());
-        Page<VideoDTO> videoDTOs = filteredVideos.map(this::convertToDTO);
+        Page<VideoDTO> videoDTOs = filteredVideos.map(v -> convertToDTO(v, currentUserId));
         return ResponseEntity.ok(videoDTOs);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get video by ID", description = "Retrieve a video by its ID")
-    public ResponseEntity<VideoDTO> getVideoById(@PathVariable Long id) {
+    public ResponseEntity<VideoDTO> getVideoById(@PathVariable Long id, HttpServletRequest request) {
         Optional<Video> video = videoRepository.findById(id);
         if (video.isPresent()) {
             // Increment view count
             Video v = video.get();
-            v.setViewsCount(v.getViewsCount() + 1);
-            videoRepository.save(v);
-            
-            return ResponseEntity.ok(convertToDTO(v));
+            viewCounter.record(v.getId());
+            uniqueViewerCounter.record(v.getId(), authUtil.getViewerKey(request));
+
+            return ResponseEntity.ok(convertToDTO(v, authUtil.getCurrentUserId(request)));
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -128,7 +163,7 @@ public class VideoController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> createVideo(@Valid @RequestBody CreateVideoRequest request, 
                                        HttpServletRequest httpRequest) {
-        Optional<User> currentUser = authUtil.getCurrentUser(httpRequest);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(httpRequest);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -150,7 +185,7 @@ public class VideoController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> updateVideo(@PathVariable Long id, @Valid @RequestBody CreateVideoRequest request, HttpServletRequest httpRequest) {
         // Authenticate user
-        Optional<User> currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        Optional<User> currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -174,6 +209,7 @@ public class VideoController {
         video.setIsPublic(request.getIsPublic());
 
         Video updatedVideo = videoRepository.save(video);
+        streamDescriptors.invalidate(id);
         return ResponseEntity.ok(convertToDTO(updatedVideo));
     }
 
@@ -182,7 +218,7 @@ public class VideoController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> deleteVideo(@PathVariable Long id, HttpServletRequest httpRequest) {
         // Authenticate user
-        Optional<User> currentUserOpt = authUtil.getCurrentUser(httpRequest);
+        Optional<User> currentUserOpt = authUtil.getCurrentUserReference(httpRequest);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
         }
@@ -198,39 +234,12 @@ public class VideoController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You can only delete your own videos");
         }
 
-        // Delete the video folder and files 
-        // TODO: Maybe just add a flag to delete the video in the database, and periodically delete the files
-        /*try {
-            if (video.getVideoUrl() == null || video.getVideoUrl().isEmpty()) {
-                return ResponseEntity.badRequest().body("Video URL is required");
-            }
-    
-            // Extract the folder path from the video URL
-            // Video URL format: "assets/videos/user_{userId}/{videoId}/{videoId}.mp4"
-            String videoUrl = video.getVideoUrl();
-            Path videoPath = Paths.get(videoUrl);
-            
-            // Get the parent directory (the video folder)
-            Path videoFolder = videoPath.getParent();
-            
-            if (videoFolder != null && Files.exists(videoFolder)) {
-                // Delete all files in the folder first
-                Files.walk(videoFolder)
-                    .sorted((a, b) -> b.compareTo(a)) // Sort in reverse order to delete files before directories
-                    .forEach(path -> {
-                        try {
-                            Files.deleteIfExists(path);
-                        } catch (IOException e) {
-                            System.err.println("Error deleting file: " + path + " - " + e.getMessage());
-                        }
-                    });
-            }
-        } catch (IOException e) {
-            // Log the error but continue with database deletion
-            System.err.println("Error deleting video folder: " + e.getMessage());
-        }*/
-
-        videoRepository.deleteById(id);
+        // Hide the video now; MediaGarbageCollector removes its files and rows after a grace period
+        videoRepository.softDelete(id, LocalDateTime.now());
+        processingJobRepository.deleteByVideoId(id);
+        streamDescriptors.invalidate(id);
+        viewCounter.discard(id);
+        uniqueViewerCounter.discard(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -273,7 +282,7 @@ public class VideoController {
             return ResponseEntity.notFound().build();
         }
         User targetUser = targetUserOpt.get();
-        Optional<User> currentUserOpt = authUtil.getCurrentUser(request);
+        Optional<User> currentUserOpt = authUtil.getCurrentUserReference(request);
         Long currentUserId = currentUserOpt.map(User::getId).orElse(null);
         if (targetUser.isPrivateAccount() && (currentUserId == null || !currentUserId.equals(userId))) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -281,7 +290,7 @@ public class VideoController {
         }
         Pageable pageable = PageRequest.of(page, size);
         Page<Video> videos = videoRepository.findByUserIdAndIsPublicOrderByCreatedAtDesc(userId, true, pageable);
-        Page<VideoDTO> videoDTOs = videos.map(this::convertToDTO);
+        Page<VideoDTO> videoDTOs = videos.map(v -> convertToDTO(v, currentUserId));
         return ResponseEntity.ok(videoDTOs);
     }
 
@@ -298,7 +307,7 @@ public class VideoController {
             return ResponseEntity.notFound().build();
         }
         User targetUser = targetUserOpt.get();
-        Optional<User> currentUserOpt = authUtil.getCurrentUser(request);
+        Optional<User> currentUserOpt = authUtil.getCurrentUserReference(request);
         Long currentUserId = currentUserOpt.map(User::getId).orElse(null);
         if (targetUser.isPrivateAccount() && (currentUserId == null || !currentUserId.equals(userId))) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -311,7 +320,7 @@ public class VideoController {
         }
         Pageable pageable = PageRequest.of(page, size);
         Page<Video> videos = videoRepository.findByUserIdAndIsPublicOrderByCreatedAtDesc(userId, false, pageable);
-        Page<VideoDTO> videoDTOs = videos.map(this::convertToDTO);
+        Page<VideoDTO> videoDTOs = videos.map(v -> convertToDTO(v, currentUserId));
         return ResponseEntity.ok(videoDTOs);
     }
 
@@ -322,7 +331,7 @@ public class VideoController {
             @PathVariable Long id,
             @RequestBody java.util.Map<String, Object> payload,
             HttpServletRequest request) {
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new java.util.HashMap<String, Object>() {{
@@ -371,6 +380,7 @@ public class VideoController {
 
         video.setIsPublic(isPublic);
         videoRepository.save(video);
+        streamDescriptors.invalidate(id);
 
         return ResponseEntity.ok(new java.util.HashMap<String, Object>() {{
             put("success", true);
@@ -387,7 +397,7 @@ public class VideoController {
             @RequestParam(defaultValue = "20") int size,
             HttpServletRequest request) {
         // Check authentication
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -406,7 +416,7 @@ public class VideoController {
         }
         Pageable pageable = PageRequest.of(page, size);
         Page<Video> videos = videoRepository.findLikedVideosByUserId(userId, pageable);
-        Page<VideoDTO> videoDTOs = videos.map(this::convertToDTO);
+        Page<VideoDTO> videoDTOs = videos.map(v -> convertToDTO(v, currentUserId));
         return ResponseEntity.ok(videoDTOs);
     }
 
@@ -414,7 +424,7 @@ public class VideoController {
     @Operation(summary = "Like video", description = "Like or unlike a video (requires authentication)")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> toggleLike(@PathVariable Long id, HttpServletRequest request) {
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new java.util.HashMap<String, Object>() {{
@@ -468,7 +478,7 @@ public class VideoController {
     @Operation(summary = "Check if video is liked", description = "Check if current user has liked this video")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> isVideoLiked(@PathVariable Long id, HttpServletRequest request) {
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new java.util.HashMap<String, Object>() {{
@@ -502,7 +512,7 @@ public class VideoController {
     @Operation(summary = "Add comment to video", description = "Add a comment to a video (requires authentication)")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> addComment(@PathVariable Long id, @Valid @RequestBody CreateCommentRequest request, HttpServletRequest httpRequest) {
-        Optional<User> currentUser = authUtil.getCurrentUser(httpRequest);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(httpRequest);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new java.util.HashMap<String, Object>() {{
@@ -579,7 +589,7 @@ public class VideoController {
         Page<Comment> comments = commentRepository.findByVideoAndParentCommentIsNullOrderByCreatedAtDesc(video, pageable);
         
         // Get current user for like status
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         User user = currentUser.orElse(null);
         
         Page<CommentDTO> commentDTOs = comments.map(comment -> convertToCommentDTO(comment, user));
@@ -591,7 +601,7 @@ public class VideoController {
     @Operation(summary = "Like comment", description = "Like or unlike a comment (requires authentication)")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> toggleCommentLike(@PathVariable Long commentId, HttpServletRequest request) {
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new java.util.HashMap<String, Object>() {{
@@ -646,7 +656,7 @@ public class VideoController {
     @SecurityRequirement(name = "bearerAuth")
     @Transactional
     public ResponseEntity<?> deleteComment(@PathVariable Long commentId, HttpServletRequest request) {
-        Optional<User> currentUser = authUtil.getCurrentUser(request);
+        Optional<User> currentUser = authUtil.getCurrentUserReference(request);
         if (currentUser.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new java.util.HashMap<String, Object>() {{
@@ -695,69 +705,224 @@ public class VideoController {
         }
     }
 
-    @PostMapping("/upload")
-    @Operation(summary = "Upload video", description = "Upload a new video file and thumbnail (requires authentication)")
+    // The body is parsed as it arrives: the video and thumbnail parts are written straight to
+    // their final files, so a large upload is neither spooled to a temp file nor copied again.
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload video", description = "Upload a new video file and thumbnail as multipart fields video, thumbnail, description and isPublic (requires authentication)")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<?> uploadVideo(
-            @RequestParam("video") MultipartFile videoFile,
-            @RequestParam("thumbnail") MultipartFile thumbnailFile,
-            @RequestParam("description") String description,
-            @RequestParam("isPublic") boolean isPublic,
-            HttpServletRequest request) {
+    public ResponseEntity<?> uploadVideo(HttpServletRequest request) {
+        // Authenticate user
+        var userOpt = authUtil.getCurrentUserReference(request);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+        }
+        User user = userOpt.get();
+
+        String videoId = null;
+        boolean registered = false;
         try {
-            // Authenticate user
-            var userOpt = authUtil.getCurrentUser(request);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+            MultipartStream multipart = multipartIngest.open(request);
+            if (multipart == null) {
+                return ResponseEntity.badRequest().body("Expected a multipart/form-data body");
+            }
+            videoId = ingestService.newVideoKey();
+
+            MultipartIngestService.StoredFile video = null;
+            MultipartIngestService.StoredFile thumbnail = null;
+            String description = null;
+            Boolean isPublic = null;
+            for (MultipartStream.Part part; (part = multipart.nextPart()) != null; ) {
+                if ("video".equals(part.getName()) && part.isFile() && video == null) {
+                    video = multipartIngest.store(part, ingestService.videoFile(videoId),
+                            MultipartIngestService.Kind.VIDEO);
+                } else if ("thumbnail".equals(part.getName()) && part.isFile() && thumbnail == null) {
+                    thumbnail = multipartIngest.store(part, ingestService.thumbnailFile(videoId),
+                            MultipartIngestService.Kind.IMAGE);
+                } else if ("description".equals(part.getName())) {
+                    description = part.getValue(MAX_FORM_FIELD_BYTES);
+                } else if ("isPublic".equals(part.getName())) {
+                    isPublic = Boolean.parseBoolean(part.getValue(MAX_FORM_FIELD_BYTES).trim());
+                }
             }
-            User user = userOpt.get();
 
             // Validate files
-            if (videoFile.isEmpty()) {
+            if (video == null) {
                 return ResponseEntity.badRequest().body("No video file uploaded");
             }
-            if (thumbnailFile.isEmpty()) {
+            if (thumbnail == null) {
                 return ResponseEntity.badRequest().body("No thumbnail file uploaded");
             }
+            if (description == null || isPublic == null) {
+                return ResponseEntity.badRequest().body("Description and isPublic are required");
+            }
+
+            Video savedVideo = ingestService.register(user, videoId, description, isPublic,
+                    video.getSha256(), thumbnail.getSha256());
+            registered = true;
 
-            // Generate unique 11-character videoId
-            String videoId = generateVideoId(11);
-            String baseDir = "assets/videos/user_" + user.getId() + "/" + videoId + "/";
-            Path uploadDir = Paths.get(baseDir);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
+            // Processing continues in the background; the DTO carries processingStatus
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToDTO(savedVideo));
+        } catch (MultipartStream.SizeLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload video: " + e.getMessage());
+        } finally {
+            if (videoId != null && !registered) {
+                ingestService.discard(videoId);
             }
+        }
+    }
+
+    @PostMapping("/uploads")
+    @Operation(summary = "Start resumable upload", description = "Open an upload session that accepts the video in chunks (requires authentication)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> createUpload(@Valid @RequestBody CreateUploadRequest uploadRequest, HttpServletRequest request) {
+        var userOpt = authUtil.getCurrentUserReference(request);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+        }
+        try {
+            UploadSession session = resumableUploads.create(userOpt.get().getId(), uploadRequest.getSize(),
+                    uploadRequest.getDescription(), !Boolean.FALSE.equals(uploadRequest.getIsPublic()));
+            return ResponseEntity.status(HttpStatus.CREATED).body(new UploadSessionDTO(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to start upload: " + e.getMessage());
+        }
+    }
+
+    // Chunk bodies are raw bytes placed by "Content-Range: bytes start-end/size". Chunks may
+    // be sent in any order, concurrently, and retried; overlapping bytes are simply rewritten.
+    @PutMapping("/uploads/{uploadId}")
+    @Operation(summary = "Upload chunk", description = "Write one chunk of a resumable upload at the offset given by Content-Range (requires authentication)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @RequestHeader(value = "Content-Range", required = false) String contentRange,
+                                         @CurrentUser AuthenticatedUser principal,
+                                         HttpServletRequest request) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+        }
+        UploadSession session = resumableUploads.get(uploadId, principal.getUserId());
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+        }
+
+        long[] range = parseContentRange(contentRange, session.getSize());
+        if (range == null) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Range", "bytes=" + session.getCommittedOffset() + "-")
+                    .body("Content-Range must be bytes start-end/" + session.getSize());
+        }
+        long length = range[1] - range[0] + 1;
+        if (request.getContentLengthLong() >= 0 && request.getContentLengthLong() != length) {
+            return ResponseEntity.badRequest().body("Content-Length does not match Content-Range");
+        }
+
+        try {
+            long written = resumableUploads.writeChunk(session, range[0], length, request.getInputStream());
+            HttpStatus status = written < length ? HttpStatus.BAD_REQUEST : HttpStatus.OK;
+            return ResponseEntity.status(status).body(new UploadSessionDTO(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            // Client disconnected mid-chunk; whatever arrived is kept
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to write chunk: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    @Operation(summary = "Get upload status", description = "Return how much of a resumable upload has been received (requires authentication)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> getUploadStatus(@PathVariable String uploadId, @CurrentUser AuthenticatedUser principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+        }
+        UploadSession session = resumableUploads.get(uploadId, principal.getUserId());
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+        }
+        return ResponseEntity.ok(new UploadSessionDTO(session));
+    }
 
-            // Save video file
-            String videoFilename = videoId + ".mp4";
-            Path videoPath = uploadDir.resolve(videoFilename);
-            videoFile.transferTo(videoPath);
-
-            // Save thumbnail file
-            String thumbFilename = videoId + ".jpg";
-            Path thumbPath = uploadDir.resolve(thumbFilename);
-            thumbnailFile.transferTo(thumbPath);
-
-            // Now create and save the Video entity with all required fields
-            Video video = new Video();
-            video.setDescription(description);
-            video.setIsPublic(isPublic);
-            video.setUser(user);
-            video.setVideoUrl(baseDir + videoFilename);
-            video.setThumbnailUrl(baseDir + thumbFilename);
-            Video savedVideo = videoRepository.save(video);
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(convertToDTO(savedVideo));
+    @PostMapping("/uploads/{uploadId}/complete")
+    @Operation(summary = "Complete resumable upload", description = "Turn a fully received upload into a video, with an optional thumbnail (requires authentication)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId,
+                                            @RequestParam(value = "thumbnail", required = false) MultipartFile thumbnailFile,
+                                            HttpServletRequest request) {
+        var userOpt = authUtil.getCurrentUserReference(request);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+        }
+        UploadSession session = resumableUploads.get(uploadId, userOpt.get().getId());
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+        }
+        if (!session.isComplete()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new UploadSessionDTO(session));
+        }
+        try {
+            Video savedVideo = resumableUploads.complete(session, userOpt.get(), thumbnailFile);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertToDTO(savedVideo));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to upload video: " + e.getMessage());
         }
     }
 
+    @DeleteMapping("/uploads/{uploadId}")
+    @Operation(summary = "Abort resumable upload", description = "Discard an unfinished upload and its partial file (requires authentication)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId, @CurrentUser AuthenticatedUser principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authentication required");
+        }
+        UploadSession session = resumableUploads.get(uploadId, principal.getUserId());
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload not found");
+        }
+        resumableUploads.abort(session);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Parses "bytes start-end/size" into {start, end}; null if malformed or not within the upload
+    private long[] parseContentRange(String header, long size) {
+        if (header == null || !header.startsWith("bytes ")) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        int slash = spec.indexOf('/');
+        if (dash <= 0 || slash < dash) {
+            return null;
+        }
+        try {
+            long start = Long.parseLong(spec.substring(0, dash));
+            long end = Long.parseLong(spec.substring(dash + 1, slash));
+            long total = Long.parseLong(spec.substring(slash + 1));
+            if (total != size || start < 0 || end < start || end >= size) {
+                return null;
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @PostMapping("/{id}/share")
     @Operation(summary = "Share video", description = "Increment the share count for a video (requires authentication)")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> shareVideo(@PathVariable Long id, HttpServletRequest request) {
-        Optional<User> currentUserOpt = authUtil.getCurrentUser(request);
+        Optional<User> currentUserOpt = authUtil.getCurrentUserReference(request);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(java.util.Map.of("success", false, "message", "Authentication required"));
@@ -777,6 +942,12 @@ public class VideoController {
     }
 
     private VideoDTO convertToDTO(Video video) {
+        return convertToDTO(video, null);
+    }
+
+    // With a viewer, playable videos also carry a signed stream URL the player can use
+    // without sending the JWT on every range request
+    private VideoDTO convertToDTO(Video video, Long viewerId) {
         UserDTO userDTO = new UserDTO(
             video.getUser().getId(),
             video.getUser().getUsername(),
@@ -790,13 +961,13 @@ public class VideoController {
             video.getUser().isPrivateAccount()
         );
 
-        return new VideoDTO(
+        VideoDTO videoDTO = new VideoDTO(
             video.getId(),
             video.getDescription(),
             video.getVideoUrl(),
             video.getThumbnailUrl(),
             video.getDurationSeconds(),
-            video.getViewsCount(),
+            video.getViewsCount() + viewCounter.pending(video.getId()),
             video.getLikesCount(),
             video.getCommentsCount(),
             video.getSharesCount(),
@@ -804,6 +975,23 @@ public class VideoController {
             video.getCreatedAt(),
             userDTO
         );
+
+        videoDTO.setWidth(video.getWidth());
+        videoDTO.setHeight(video.getHeight());
+        videoDTO.setUniqueViewers(video.getUniqueViewers());
+        videoDTO.setProcessingStatus(video.getProcessingStatus() != null
+            ? video.getProcessingStatus().name() : ProcessingStatus.READY.name());
+
+        if (viewerId != null && (Boolean.TRUE.equals(video.getIsPublic()) || video.getUser().getId().equals(viewerId))) {
+            videoDTO.setStreamUrl("/api/stream/video/" + video.getId() + "?" + streamUrlSigner.sign(video.getId(), viewerId));
+        }
+
+        // Segmented playback is only offered once packaging has finished
+        if (video.getPackageVersion() != null) {
+            videoDTO.setHlsUrl("/api/stream/package/" + video.getId() + "/" + VideoPackagingService.HLS_MANIFEST);
+            videoDTO.setDashUrl("/api/stream/package/" + video.getId() + "/" + VideoPackagingService.DASH_MANIFEST);
+        }
+        return videoDTO;
     }
 
     private CommentDTO convertToCommentDTO(Comment comment, User currentUser) {
@@ -1,29 +1,48 @@
 package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.controller;
 
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.config.CurrentUser;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
-import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthUtil;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.FirstBytesCache;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.ImageCache;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MediaStore;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.MediaTieringService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.RenditionService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.StreamDescriptor;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.StreamDescriptorCache;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.StreamingMetrics;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.StreamingService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UniqueViewerCounter;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.VideoPackagingService;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.ViewCounter;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.AuthenticatedUser;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.ByteRanges;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.CountingOutputStream;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.FileValidators;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.StreamUrlSigner;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.DisconnectedClientHelper;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserRepository;
 
@@ -32,94 +51,273 @@ import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserReposit
 @Tag(name = "Video Streaming", description = "Video streaming endpoints with range support")
 public class VideoStreamingController {
 
+    // Media behind an id only changes when its file is replaced, which changes the ETag
+    private static final CacheControl PRIVATE_MEDIA_CACHE = CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate();
+
+    // Package versions never change once published
+    private static final CacheControl IMMUTABLE_MEDIA_CACHE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
+    private static final String DEFAULT_PROFILE_PICTURE = "assets/users/default_picture.jpg";
+
+    private static final Pattern PACKAGE_FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
     @Autowired
     private VideoRepository videoRepository;
 
     @Autowired
-    private AuthUtil authUtil;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private StreamingService streamingService;
+
+    @Autowired
+    private VideoPackagingService packagingService;
+
+    @Autowired
+    private RenditionService renditionService;
+
+    @Autowired
+    private FirstBytesCache firstBytesCache;
+
+    @Autowired
+    private ImageCache imageCache;
+
+    @Autowired
+    private ViewCounter viewCounter;
+
+    @Autowired
+    private UniqueViewerCounter uniqueViewerCounter;
+
+    @Autowired
+    private StreamUrlSigner streamUrlSigner;
+
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Autowired
+    private StreamingMetrics streamingMetrics;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaTieringService mediaTiering;
 
     @GetMapping("/video/{videoId}")
-    @Operation(summary = "Stream video", description = "Stream video with range support for seeking")
-    public ResponseEntity<Resource> streamVideo(
+    @Operation(summary = "Stream video", description = "Stream video with range support for seeking. A rendition is picked from the quality parameter or the Save-Data, Downlink and ECT client hints")
+    public void streamVideo(
             @PathVariable Long videoId,
             @RequestHeader(value = "Range", required = false) String rangeHeader,
-            HttpServletRequest request) throws IOException {
+            @RequestParam(value = "quality", required = false) String quality,
+            @RequestHeader(value = "Save-Data", required = false) String saveData,
+            @RequestHeader(value = "Downlink", required = false) String downlink,
+            @RequestHeader(value = "ECT", required = false) String ect,
+            @RequestParam(value = "uid", required = false) Long signedUserId,
+            @RequestParam(value = "exp", required = false) Long expires,
+            @RequestParam(value = "sig", required = false) String signature,
+            @CurrentUser AuthenticatedUser principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        long startNanos = System.nanoTime();
+        // Set for errors the handler throws; their status is only set later, by Spring
+        boolean failed = false;
+        try {
+            StreamDescriptor descriptor;
+            String viewerKey;
+            if (signature != null) {
+                // A signed URL was minted for a viewer allowed to watch this video, so neither
+                // the JWT nor the user has to be looked at again
+                if (!streamUrlSigner.verify(videoId, signedUserId, expires, signature)) {
+                    response.setStatus(HttpStatus.FORBIDDEN.value());
+                    return;
+                }
+                descriptor = streamDescriptors.get(videoId);
+                if (descriptor == null) {
+                    response.setStatus(HttpStatus.NOT_FOUND.value());
+                    return;
+                }
+                // Visibility may have changed since the URL was minted
+                if (!descriptor.isVisibleTo(signedUserId)) {
+                    response.setStatus(HttpStatus.FORBIDDEN.value());
+                    return;
+                }
+                viewerKey = "u:" + signedUserId;
+            } else {
+                // Check authentication (JwtAuthenticationFilter already verified the token)
+                if (principal == null) {
+                    response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                    return;
+                }
+
+                descriptor = findAccessibleStream(videoId, principal, response);
+                if (descriptor == null) {
+                    return;
+                }
+                viewerKey = "u:" + principal.getUserId();
+            }
+            streamingMetrics.recordRequest(videoId);
+            // Heat counts playback starts, not every range a player fetches
+            if (rangeHeader == null || rangeHeader.startsWith("bytes=0-")) {
+                mediaTiering.recordAccess(descriptor);
+            }
 
-        // Check authentication from headers
-        if (!authUtil.isAuthenticated(request)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            // Serve a lighter rendition when the client asks for one or reports a slow network
+            response.setHeader(HttpHeaders.VARY, "Save-Data, Downlink, ECT");
+            StreamDescriptor.Rendition rendition = renditionService.select(descriptor.getRenditions(), quality, saveData, downlink, ect);
+
+            StreamDescriptor.StreamFile file = rendition != null
+                    ? descriptor.getRenditionFile(rendition.getName())
+                    : descriptor.getOriginal();
+            if (file == null) {
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+
+            Path filePath = file.getPath();
+            long fileSize = file.getLength();
+            long lastModified = file.getLastModified();
+            String etag = file.getEtag();
+            String contentType = file.getContentType();
+
+            // Answer revalidations with 304 before the file is opened
+            response.setHeader(HttpHeaders.CACHE_CONTROL, PRIVATE_MEDIA_CACHE.getHeaderValue());
+            if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+                return;
+            }
+
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            // Handle range requests for video seeking. If-Range that no longer matches means the
+            // client holds stale bytes, so it gets the full file instead
+            ByteRanges ranges = streamingService.limitOpenEnded(ByteRanges.parse(rangeHeader, fileSize), file.getBitrateKbps());
+            if (ranges != null && ByteRanges.ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+                handleRangeRequest(videoId, rendition == null, etag, filePath, ranges, fileSize, contentType,
+                        startNanos, request, response);
+                return;
+            }
+
+            // Increment view count
+            viewCounter.record(videoId);
+            uniqueViewerCounter.record(videoId, viewerKey);
+
+            // Return full file
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            response.setContentLengthLong(fileSize);
+            writeVideoRegion(videoId, rendition == null, etag, filePath, fileSize, 0, fileSize, true,
+                    startNanos, request, response);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        } catch (IOException e) {
+            // A client hanging up keeps the status it was sent
+            failed = !DisconnectedClientHelper.isClientDisconnectedException(e);
+            throw e;
+        } finally {
+            streamingMetrics.recordStatus(failed ? HttpStatus.INTERNAL_SERVER_ERROR.value() : response.getStatus());
         }
+    }
 
-        // Get video from database
-        Optional<Video> videoOpt = videoRepository.findById(videoId);
-        if (videoOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    @GetMapping("/package/{videoId}/{fileName}")
+    @Operation(summary = "Get stream manifest", description = "Redirect to the current HLS (master.m3u8) or DASH (manifest.mpd) manifest of a segmented video")
+    public void getManifest(
+            @PathVariable Long videoId,
+            @PathVariable String fileName,
+            @CurrentUser AuthenticatedUser principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        // Check authentication (JwtAuthenticationFilter already verified the token)
+        if (principal == null) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
         }
 
-        Video video = videoOpt.get();
-        
-        // Check if video is public or user has access
-        if (!video.getIsPublic()) {
-            // Get current user from request
-            Optional<User> currentUserOpt = authUtil.getCurrentUser(request);
-            if (currentUserOpt.isEmpty() || !video.getUser().getId().equals(currentUserOpt.get().getId())) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
+        if (!VideoPackagingService.HLS_MANIFEST.equals(fileName) && !VideoPackagingService.DASH_MANIFEST.equals(fileName)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        StreamDescriptor descriptor = findAccessibleStream(videoId, principal, response);
+        if (descriptor == null) {
+            return;
+        }
+        if (descriptor.getPackageVersion() == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
+        mediaTiering.recordAccess(descriptor);
+
+        // Only this stable entry point is revalidated; everything under a version is immutable
+        response.setStatus(HttpStatus.FOUND.value());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setHeader(HttpHeaders.LOCATION, descriptor.getPackageVersion() + "/" + fileName);
+    }
 
-        // Construct file path
-        String videoPath = video.getVideoUrl();
-        if (!videoPath.startsWith("assets/")) {
-            videoPath = "assets/" + videoPath;
+    @GetMapping("/package/{videoId}/{version}/{fileName}")
+    @Operation(summary = "Get stream segment", description = "Get a manifest, playlist or fMP4 segment of a packaged video version")
+    public void getPackageFile(
+            @PathVariable Long videoId,
+            @PathVariable String version,
+            @PathVariable String fileName,
+            @CurrentUser AuthenticatedUser principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        // Check authentication (JwtAuthenticationFilter already verified the token)
+        if (principal == null) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
         }
 
-        Path filePath = Paths.get(videoPath);
-        
-        if (!Files.exists(filePath)) {
-            return ResponseEntity.notFound().build();
+        // Reject anything that could escape the package directory
+        if (!PACKAGE_FILE_NAME.matcher(version).matches() || !PACKAGE_FILE_NAME.matcher(fileName).matches()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        Resource resource = new UrlResource(filePath.toUri());
-        if (!resource.exists() || !resource.isReadable()) {
-            return ResponseEntity.notFound().build();
+        StreamDescriptor descriptor = findAccessibleStream(videoId, principal, response);
+        if (descriptor == null) {
+            return;
         }
 
-        long fileSize = resource.contentLength();
-        
-        // Determine content type
-        String contentType = Files.probeContentType(filePath);
-        if (contentType == null) {
-            contentType = "video/mp4"; // Default to MP4
+        Path filePath = packagingService.resolvePackageFile(descriptor.getMediaDirectory(), version, fileName);
+        BasicFileAttributes attributes = readAttributes(filePath);
+        if (attributes == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        // Handle range requests for video seeking
-        if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
-            return handleRangeRequest(resource, rangeHeader, fileSize, contentType);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_MEDIA_CACHE.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(
+                FileValidators.strongETag(attributes), attributes.lastModifiedTime().toMillis())) {
+            return;
         }
 
-        // Increment view count
-        video.setViewsCount(video.getViewsCount() + 1);
-        videoRepository.save(video);
+        String contentType = "video/iso.segment";
+        if (fileName.endsWith(".m3u8")) {
+            contentType = "application/vnd.apple.mpegurl";
+        } else if (fileName.endsWith(".mpd")) {
+            contentType = "application/dash+xml";
+        } else if (fileName.endsWith(".mp4")) {
+            contentType = "video/mp4";
+        }
 
-        // Return full file
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .contentLength(fileSize)
-                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                .body(resource);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(contentType);
+        response.setContentLengthLong(attributes.size());
+        streamingService.writeRegion(filePath, 0, attributes.size(), request, response);
     }
 
     @GetMapping("/thumbnail/{videoId}")
     @Operation(summary = "Get video thumbnail", description = "Get video thumbnail image")
     public ResponseEntity<Resource> getThumbnail(
             @PathVariable Long videoId,
-            HttpServletRequest request) throws IOException {
+            @CurrentUser AuthenticatedUser principal) throws IOException {
 
-        // Check authentication from headers
-        if (!authUtil.isAuthenticated(request)) {
+        // Check authentication (JwtAuthenticationFilter already verified the token)
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -135,39 +333,28 @@ public class VideoStreamingController {
             return ResponseEntity.notFound().build();
         }
 
-        if (!thumbnailPath.startsWith("assets/")) {
-            thumbnailPath = "assets/" + thumbnailPath;
-        }
-
-        Path filePath = Paths.get(thumbnailPath);
-        
-        if (!Files.exists(filePath)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        Resource resource = new UrlResource(filePath.toUri());
-        if (!resource.exists() || !resource.isReadable()) {
+        ImageCache.Image image = imageCache.get(mediaStore.resolve(thumbnailPath));
+        if (image == null) {
             return ResponseEntity.notFound().build();
         }
 
-        String contentType = Files.probeContentType(filePath);
-        if (contentType == null) {
-            contentType = "image/jpeg"; // Default to JPEG
-        }
-
+        // A matching If-None-Match/If-Modified-Since turns this into a 304 without reading the file
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(resource);
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .eTag(image.getEtag())
+                .lastModified(image.getLastModified())
+                .cacheControl(PRIVATE_MEDIA_CACHE)
+                .body(image.getResource());
     }
 
     @GetMapping("/profile-image/{userId}")
     @Operation(summary = "Get user profile image", description = "Get user profile image with authentication")
     public ResponseEntity<Resource> getProfileImage(
             @PathVariable Long userId,
-            HttpServletRequest request) throws IOException {
+            @CurrentUser AuthenticatedUser principal) throws IOException {
 
-        // Check authentication from headers
-        if (!authUtil.isAuthenticated(request)) {
+        // Check authentication (JwtAuthenticationFilter already verified the token)
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -182,7 +369,7 @@ public class VideoStreamingController {
         
         // If no profile image set, use default
         if (profileImagePath == null || profileImagePath.isEmpty()) {
-            profileImagePath = "assets/users/default_picture.jpg";
+            profileImagePath = DEFAULT_PROFILE_PICTURE;
         } else {
             // Ensure path starts with assets/
             if (!profileImagePath.startsWith("assets/")) {
@@ -190,76 +377,129 @@ public class VideoStreamingController {
             }
         }
 
-        Path filePath = Paths.get(profileImagePath);
-        
+        ImageCache.Image image = imageCache.get(mediaStore.resolve(profileImagePath));
+
         // If file doesn't exist, fall back to default
-        if (!Files.exists(filePath)) {
-            filePath = Paths.get("assets/users/default_picture.jpg");
+        if (image == null) {
+            image = imageCache.get(mediaStore.resolve(DEFAULT_PROFILE_PICTURE));
+            if (image == null) {
+                return ResponseEntity.notFound().build();
+            }
         }
 
-        Resource resource = new UrlResource(filePath.toUri());
-        if (!resource.exists() || !resource.isReadable()) {
-            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .eTag(image.getEtag())
+                .lastModified(image.getLastModified())
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic()) // Cache for 1 hour, then revalidate
+                .body(image.getResource());
+    }
+
+    private void handleRangeRequest(Long videoId, boolean cacheable, String etag, Path filePath, ByteRanges ranges,
+                                    long fileSize, String contentType, long startNanos,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // No requested range overlaps the file
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            return;
         }
 
-        String contentType = Files.probeContentType(filePath);
-        if (contentType == null) {
-            contentType = "image/jpeg"; // Default to JPEG
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+
+        // Several ranges (e.g. header and index boxes) go back in one multipart response
+        if (ranges.size() > 1) {
+            long requested = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                requested += ranges.length(i);
+            }
+            streamingMetrics.recordRangeSize(requested);
+            streamingMetrics.recordTimeToFirstByte(startNanos);
+            long written = streamingService.writeMultipart(filePath, ranges, fileSize, contentType, request, response);
+            viewCounter.recordBytes(videoId, written);
+            streamingMetrics.recordBytesServed(written);
+            return;
         }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header("Cache-Control", "public, max-age=3600") // Cache for 1 hour
-                .body(resource);
+        long start = ranges.start(0);
+        long end = ranges.end(0);
+        long contentLength = ranges.length(0);
+
+        response.setContentType(contentType);
+        response.setContentLengthLong(contentLength);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+        streamingMetrics.recordRangeSize(contentLength);
+        writeVideoRegion(videoId, cacheable, etag, filePath, fileSize, start, contentLength, false,
+                startNanos, request, response);
     }
 
-    private ResponseEntity<Resource> handleRangeRequest(Resource resource, String rangeHeader, 
-                                                       long fileSize, String contentType) throws IOException {
-        // Parse range header (e.g., "bytes=0-1023")
-        String range = rangeHeader.substring(6); // Remove "bytes="
-        String[] ranges = range.split("-");
-        
-        long start = 0;
-        long end = fileSize - 1;
-        
-        if (ranges.length >= 1 && !ranges[0].isEmpty()) {
-            start = Long.parseLong(ranges[0]);
+    // Serves the part of the region covered by the first-bytes cache from memory and only
+    // goes to the file for what lies beyond the cached prefix. The bytes actually delivered,
+    // less than length if the client disconnects, are added to the video's bytes served.
+    // A region handed to sendfile is written by the connector after we return and Tomcat
+    // never reports how much of it arrived, so it is left out of bytes served (and its
+    // aborts go unseen). Range responses, which is how players fetch video and where they
+    // abort on a swipe, are therefore always written here with transferTo; only full-file
+    // responses may use sendfile.
+    private void writeVideoRegion(Long videoId, boolean cacheable, String etag, Path filePath, long fileSize,
+                                  long start, long length, boolean allowSendfile, long startNanos,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
         }
-        
-        if (ranges.length >= 2 && !ranges[1].isEmpty()) {
-            end = Long.parseLong(ranges[1]);
+        streamingMetrics.recordTimeToFirstByte(startNanos);
+        CountingOutputStream out = new CountingOutputStream(response.getOutputStream());
+        boolean sendfile = false;
+        try {
+            long cached = 0;
+            if (cacheable) {
+                cached = firstBytesCache.write(videoId, etag, filePath, fileSize, start, length, out);
+            }
+            if (cached == 0 && allowSendfile) {
+                sendfile = streamingService.writeRegion(filePath, start, length, request, response, out);
+            } else if (cached < length) {
+                streamingService.transfer(filePath, start + cached, length - cached, out);
+            }
+        } catch (IOException e) {
+            // Usually the player dropping the connection, e.g. after a swipe
+            if (DisconnectedClientHelper.isClientDisconnectedException(e)) {
+                streamingMetrics.recordAborted();
+            }
+            throw e;
+        } finally {
+            if (sendfile) {
+                streamingMetrics.recordSendfileScheduled(length);
+            } else {
+                viewCounter.recordBytes(videoId, out.getCount());
+                streamingMetrics.recordBytesServed(out.getCount());
+            }
         }
-        
-        // Ensure valid range
-        if (start > end || start >= fileSize) {
-            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
-                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
-                    .build();
+    }
+
+    // Loads the video and checks the caller may watch it, setting the error status otherwise
+    private StreamDescriptor findAccessibleStream(Long videoId, AuthenticatedUser principal,
+                                                  HttpServletResponse response) throws IOException {
+        StreamDescriptor descriptor = streamDescriptors.get(videoId);
+        if (descriptor == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return null;
         }
-        
-        // Limit end to file size
-        if (end >= fileSize) {
-            end = fileSize - 1;
+
+        // Check if video is public or user has access; the token's user id is enough for that
+        if (!descriptor.isVisibleTo(principal.getUserId())) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return null;
+        }
+        return descriptor;
+    }
+
+    private BasicFileAttributes readAttributes(Path filePath) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (NoSuchFileException e) {
+            return null;
         }
-        
-        long contentLength = end - start + 1;
-        
-        // Create InputStreamResource for partial content
-        InputStream inputStream = resource.getInputStream();
-        inputStream.skip(start);
-        InputStreamResource partialResource = new InputStreamResource(inputStream) {
-            @Override
-            public long contentLength() {
-                return contentLength;
-            }
-        };
-        
-        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                .contentType(MediaType.parseMediaType(contentType))
-                .contentLength(contentLength)
-                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize)
-                .body(partialResource);
     }
 
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+public class CreateUploadRequest {
+    @NotNull(message = "Upload size is required")
+    @Positive(message = "Upload size must be positive")
+    private Long size;
+
+    @Size(max = 100, message = "Description must not exceed 100 characters")
+    private String description;
+
+    private Boolean isPublic = true;
+
+    public CreateUploadRequest() {}
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public Boolean getIsPublic() { return isPublic; }
+    public void setIsPublic(Boolean isPublic) { this.isPublic = isPublic; }
+}
@@ -0,0 +1,42 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.dto;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UploadSession;
+
+public class UploadSessionDTO {
+    private String uploadId;
+    private Long size;
+    // Gap-free prefix received so far; a sequential client resumes here
+    private Long committedOffset;
+    private Long receivedBytes;
+    private Boolean complete;
+    private Long expiresAt;
+
+    public UploadSessionDTO() {}
+
+    public UploadSessionDTO(UploadSession session) {
+        this.uploadId = session.getId();
+        this.size = session.getSize();
+        this.committedOffset = session.getCommittedOffset();
+        this.receivedBytes = session.getReceivedBytes();
+        this.complete = session.isComplete();
+        this.expiresAt = session.getExpiresAt();
+    }
+
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public Long getCommittedOffset() { return committedOffset; }
+    public void setCommittedOffset(Long committedOffset) { this.committedOffset = committedOffset; }
+
+    public Long getReceivedBytes() { return receivedBytes; }
+    public void setReceivedBytes(Long receivedBytes) { this.receivedBytes = receivedBytes; }
+
+    public Boolean getComplete() { return complete; }
+    public void setComplete(Boolean complete) { this.complete = complete; }
+
+    public Long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Long expiresAt) { this.expiresAt = expiresAt; }
+}
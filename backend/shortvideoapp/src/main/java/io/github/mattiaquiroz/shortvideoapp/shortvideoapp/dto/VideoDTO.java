@@ -15,6 +15,13 @@ public class VideoDTO {
     private Boolean isPublic;
     private LocalDateTime createdAt;
     private UserDTO user;
+    private String hlsUrl;
+    private String dashUrl;
+    private Integer width;
+    private Integer height;
+    private Long uniqueViewers;
+    private String streamUrl;
+    private String processingStatus;
 
     public VideoDTO() {}
 
@@ -71,4 +78,25 @@ public class VideoDTO {
 
     public UserDTO getUser() { return user; }
     public void setUser(UserDTO user) { this.user = user; }
+
+    public String getHlsUrl() { return hlsUrl; }
+    public void setHlsUrl(String hlsUrl) { this.hlsUrl = hlsUrl; }
+
+    public String getDashUrl() { return dashUrl; }
+    public void setDashUrl(String dashUrl) { this.dashUrl = dashUrl; }
+
+    public Integer getWidth() { return width; }
+    public void setWidth(Integer width) { this.width = width; }
+
+    public Integer getHeight() { return height; }
+    public void setHeight(Integer height) { this.height = height; }
+
+    public Long getUniqueViewers() { return uniqueViewers; }
+    public void setUniqueViewers(Long uniqueViewers) { this.uniqueViewers = uniqueViewers; }
+
+    public String getStreamUrl() { return streamUrl; }
+    public void setStreamUrl(String streamUrl) { this.streamUrl = streamUrl; }
+
+    public String getProcessingStatus() { return processingStatus; }
+    public void setProcessingStatus(String processingStatus) { this.processingStatus = processingStatus; }
 } 
\ No newline at end of file
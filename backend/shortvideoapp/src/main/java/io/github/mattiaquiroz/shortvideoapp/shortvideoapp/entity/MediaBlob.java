@@ -0,0 +1,92 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "media_blobs")
+public class MediaBlob {
+
+    // SHA-256 of the content as uploaded, hex encoded
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "content_type", length = 64)
+    private String contentType;
+
+    // Videos referencing the blob; only changed through MediaBlobRepository's relative updates
+    @Column(name = "ref_count", nullable = false, updatable = false)
+    private Integer refCount = 1;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public MediaBlob() {}
+
+    public MediaBlob(String sha256, String storagePath, Long sizeBytes, String contentType) {
+        this.sha256 = sha256;
+        this.storagePath = storagePath;
+        this.sizeBytes = sizeBytes;
+        this.contentType = contentType;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getStoragePath() {
+        return storagePath;
+    }
+
+    public void setStoragePath(String storagePath) {
+        this.storagePath = storagePath;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
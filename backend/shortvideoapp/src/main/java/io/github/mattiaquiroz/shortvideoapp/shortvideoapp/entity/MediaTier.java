@@ -0,0 +1,8 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity;
+
+// Which storage tier a video's folder (and, once no hot video shares it, its original) is
+// on. Videos from before tiering have no tier and count as HOT.
+public enum MediaTier {
+    HOT,
+    COLD
+}
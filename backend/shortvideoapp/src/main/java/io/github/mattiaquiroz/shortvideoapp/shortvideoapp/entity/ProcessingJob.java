@@ -0,0 +1,146 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One stage of post-upload processing for a video, claimed by ProcessingPipeline workers
+@Entity
+@Table(name = "processing_jobs", indexes = {
+    @Index(name = "idx_processing_jobs_claim", columnList = "stage, status, run_at")
+})
+public class ProcessingJob {
+
+    public enum Stage {
+        // Faststart rewrite and stream facts
+        PREPARE,
+        RENDITIONS,
+        PACKAGE;
+
+        public Stage next() {
+            return this == PREPARE ? RENDITIONS : this == RENDITIONS ? PACKAGE : null;
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "video_id", nullable = false)
+    private Long videoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Stage stage;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    // Earliest time the job may be claimed; pushed back after a failed attempt
+    @Column(name = "run_at", nullable = false)
+    private LocalDateTime runAt;
+
+    // A RUNNING job whose lease ran out (worker died) becomes claimable again
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public ProcessingJob() {}
+
+    public ProcessingJob(Long videoId, Stage stage, LocalDateTime runAt) {
+        this.videoId = videoId;
+        this.stage = stage;
+        this.runAt = runAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Long videoId) {
+        this.videoId = videoId;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getRunAt() {
+        return runAt;
+    }
+
+    public void setRunAt(LocalDateTime runAt) {
+        this.runAt = runAt;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
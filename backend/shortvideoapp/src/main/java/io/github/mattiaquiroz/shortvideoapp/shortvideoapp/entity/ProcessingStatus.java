@@ -0,0 +1,10 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity;
+
+// Where a video is in post-upload processing. Videos from before the pipeline have no
+// status and count as READY.
+public enum ProcessingStatus {
+    UPLOADED,
+    PROCESSING,
+    READY,
+    FAILED
+}
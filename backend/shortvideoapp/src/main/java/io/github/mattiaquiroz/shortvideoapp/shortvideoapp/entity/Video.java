@@ -3,11 +3,14 @@ package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.LocalDateTime;
 import java.util.List;
 
+// Soft-deleted rows are invisible to every JPA query; MediaGarbageCollector purges them
 @Entity
 @Table(name = "videos")
+@SQLRestriction("deleted = false")
 public class Video {
 
     @Id
@@ -28,9 +31,66 @@ public class Video {
     @Column(name = "duration_seconds")
     private Integer durationSeconds;
 
-    @Column(name = "views_count")
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    @Column(name = "bitrate_kbps")
+    private Integer bitrateKbps;
+
+    @Column(name = "video_codec", length = 16)
+    private String videoCodec;
+
+    @Column(name = "moov_offset")
+    private Long moovOffset;
+
+    // Per-video directory for renditions and stream packages; the original and the
+    // thumbnail live in the shared blob store (see BlobStore)
+    @Column(name = "storage_dir")
+    private String storageDir;
+
+    // SHA-256 of the referenced blobs, released when the video is deleted
+    @Column(name = "video_blob", length = 64)
+    private String videoBlob;
+
+    @Column(name = "thumbnail_blob", length = 64)
+    private String thumbnailBlob;
+
+    // SHA-256 of the staged original when the upload path hashed it while streaming; only
+    // read until ProcessingPipeline moves the original into the blob store
+    @Column(name = "staged_sha256", length = 64)
+    private String stagedSha256;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "boolean default false not null")
+    private Boolean deleted = false;
+
+    @Column(name = "deleted_at", updatable = false)
+    private LocalDateTime deletedAt;
+
+    // Only changed by ProcessingPipeline through VideoRepository.updateProcessingStatus
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processing_status", length = 16, updatable = false)
+    private ProcessingStatus processingStatus;
+
+    // Only changed by MediaTieringService through VideoRepository.updateMediaTier
+    @Enumerated(EnumType.STRING)
+    @Column(name = "media_tier", length = 8, updatable = false)
+    private MediaTier mediaTier;
+
+    // Only ever changed by ViewCounter's relative updates, so saving a stale entity can't undo them
+    @Column(name = "views_count", updatable = false)
     private Long viewsCount = 0L;
 
+    // Body bytes delivered across all views, added to by ViewCounter
+    @Column(name = "bytes_served", updatable = false)
+    private Long bytesServed = 0L;
+
+    // HyperLogLog estimate, refreshed by UniqueViewerCounter
+    @Column(name = "unique_viewers", updatable = false)
+    private Long uniqueViewers = 0L;
+
     @Column(name = "likes_count")
     private Integer likesCount = 0;
 
@@ -43,6 +103,9 @@ public class Video {
     @Column(name = "is_public")
     private Boolean isPublic = true;
 
+    @Column(name = "package_version")
+    private String packageVersion;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -59,6 +122,9 @@ public class Video {
     @OneToMany(mappedBy = "video", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Comment> comments;
 
+    @OneToMany(mappedBy = "video", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    private List<VideoRendition> renditions;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -118,6 +184,110 @@ public class Video {
         this.durationSeconds = durationSeconds;
     }
 
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public void setBitrateKbps(Integer bitrateKbps) {
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
+    public Long getMoovOffset() {
+        return moovOffset;
+    }
+
+    public void setMoovOffset(Long moovOffset) {
+        this.moovOffset = moovOffset;
+    }
+
+    public String getStorageDir() {
+        return storageDir;
+    }
+
+    public void setStorageDir(String storageDir) {
+        this.storageDir = storageDir;
+    }
+
+    public String getVideoBlob() {
+        return videoBlob;
+    }
+
+    public void setVideoBlob(String videoBlob) {
+        this.videoBlob = videoBlob;
+    }
+
+    public String getThumbnailBlob() {
+        return thumbnailBlob;
+    }
+
+    public void setThumbnailBlob(String thumbnailBlob) {
+        this.thumbnailBlob = thumbnailBlob;
+    }
+
+    public String getStagedSha256() {
+        return stagedSha256;
+    }
+
+    public void setStagedSha256(String stagedSha256) {
+        this.stagedSha256 = stagedSha256;
+    }
+
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public ProcessingStatus getProcessingStatus() {
+        return processingStatus;
+    }
+
+    public void setProcessingStatus(ProcessingStatus processingStatus) {
+        this.processingStatus = processingStatus;
+    }
+
+    public MediaTier getMediaTier() {
+        return mediaTier;
+    }
+
+    public void setMediaTier(MediaTier mediaTier) {
+        this.mediaTier = mediaTier;
+    }
+
     public Long getViewsCount() {
         return viewsCount;
     }
@@ -126,6 +296,22 @@ public class Video {
         this.viewsCount = viewsCount;
     }
 
+    public Long getBytesServed() {
+        return bytesServed;
+    }
+
+    public void setBytesServed(Long bytesServed) {
+        this.bytesServed = bytesServed;
+    }
+
+    public Long getUniqueViewers() {
+        return uniqueViewers;
+    }
+
+    public void setUniqueViewers(Long uniqueViewers) {
+        this.uniqueViewers = uniqueViewers;
+    }
+
     public Integer getLikesCount() {
         return likesCount;
     }
@@ -158,6 +344,14 @@ public class Video {
         this.isPublic = isPublic;
     }
 
+    public String getPackageVersion() {
+        return packageVersion;
+    }
+
+    public void setPackageVersion(String packageVersion) {
+        this.packageVersion = packageVersion;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -197,4 +391,12 @@ public class Video {
     public void setComments(List<Comment> comments) {
         this.comments = comments;
     }
+
+    public List<VideoRendition> getRenditions() {
+        return renditions;
+    }
+
+    public void setRenditions(List<VideoRendition> renditions) {
+        this.renditions = renditions;
+    }
 } 
\ No newline at end of file
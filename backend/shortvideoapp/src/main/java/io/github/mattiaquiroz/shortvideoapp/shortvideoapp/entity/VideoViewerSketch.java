@@ -0,0 +1,57 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "video_viewer_sketches")
+public class VideoViewerSketch {
+
+    @Id
+    @Column(name = "video_id")
+    private Long videoId;
+
+    // HyperLogLog registers, see util.HyperLogLog
+    @Column(nullable = false, length = 4096)
+    private byte[] registers;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public VideoViewerSketch() {}
+
+    public VideoViewerSketch(Long videoId, byte[] registers) {
+        this.videoId = videoId;
+        this.registers = registers;
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Long videoId) {
+        this.videoId = videoId;
+    }
+
+    public byte[] getRegisters() {
+        return registers;
+    }
+
+    public void setRegisters(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
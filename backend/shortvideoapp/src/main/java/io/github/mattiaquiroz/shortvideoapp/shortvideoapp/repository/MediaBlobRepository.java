@@ -0,0 +1,29 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.MediaBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+    // A blob whose count reached zero is on its way out and can't be revived
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaBlob b SET b.refCount = b.refCount + 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int retain(@Param("sha256") String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaBlob b SET b.refCount = b.refCount - 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int release(@Param("sha256") String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MediaBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    int deleteUnreferenced(@Param("sha256") String sha256);
+}
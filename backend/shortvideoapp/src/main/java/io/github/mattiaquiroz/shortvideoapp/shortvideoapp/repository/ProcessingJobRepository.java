@@ -0,0 +1,40 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, Long> {
+
+    // Due jobs of a stage, oldest first. Rows locked by another claimer are skipped
+    // (lock timeout -2 is SKIP LOCKED), so concurrent pollers never get the same job.
+    // Must run inside a transaction.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT j FROM ProcessingJob j WHERE j.stage = :stage AND "
+            + "((j.status = :pending AND j.runAt <= :now) OR (j.status = :running AND j.lockedUntil < :now)) "
+            + "ORDER BY j.runAt ASC")
+    List<ProcessingJob> findClaimable(@Param("stage") ProcessingJob.Stage stage,
+                                      @Param("pending") ProcessingJob.Status pending,
+                                      @Param("running") ProcessingJob.Status running,
+                                      @Param("now") LocalDateTime now,
+                                      Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProcessingJob j WHERE j.videoId = :videoId")
+    int deleteByVideoId(@Param("videoId") Long videoId);
+}
@@ -0,0 +1,23 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.VideoRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface VideoRenditionRepository extends JpaRepository<VideoRendition, Long> {
+
+    @Query("SELECT r FROM VideoRendition r WHERE r.video.id = :videoId ORDER BY r.height ASC")
+    List<VideoRendition> findByVideoIdOrderByHeightAsc(@Param("videoId") Long videoId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM VideoRendition r WHERE r.video.id = :videoId")
+    int deleteByVideoId(@Param("videoId") Long videoId);
+}
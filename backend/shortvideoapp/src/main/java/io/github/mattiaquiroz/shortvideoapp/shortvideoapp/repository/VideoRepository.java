@@ -1,14 +1,19 @@
 package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository;
 
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.MediaTier;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingStatus;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -19,6 +24,8 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
     Page<Video> findByIsPublicTrueOrderByCreatedAtDesc(Pageable pageable);
     
     Page<Video> findByIsPublicTrueOrderByViewsCountDesc(Pageable pageable);
+
+    Page<Video> findByIsPublicTrueOrderByUniqueViewersDescViewsCountDesc(Pageable pageable);
     
     Page<Video> findByIsPublicTrueOrderByLikesCountDesc(Pageable pageable);
     
@@ -35,4 +42,65 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
     Page<Video> findLikedVideosByUserId(@Param("userId") Long userId, Pageable pageable);
     
     long countByUser(User user);
-} 
\ No newline at end of file
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.packageVersion = :version WHERE v.id = :id")
+    int updatePackageVersion(@Param("id") Long id, @Param("version") String version);
+
+    // Points a video still on its staged original at the blob it went into. Returns 0 if
+    // the video was deleted or already attached meanwhile.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.videoUrl = :videoUrl, v.videoBlob = :sha256, v.stagedSha256 = null "
+            + "WHERE v.id = :id AND v.videoBlob IS NULL AND v.deleted = false")
+    int attachVideoBlob(@Param("id") Long id, @Param("videoUrl") String videoUrl, @Param("sha256") String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.processingStatus = :status WHERE v.id = :id")
+    int updateProcessingStatus(@Param("id") Long id, @Param("status") ProcessingStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.durationSeconds = :durationSeconds, v.width = :width, v.height = :height, "
+            + "v.bitrateKbps = :bitrateKbps, v.videoCodec = :videoCodec, v.moovOffset = :moovOffset WHERE v.id = :id")
+    int updateStreamInfo(@Param("id") Long id, @Param("durationSeconds") Integer durationSeconds,
+                         @Param("width") Integer width, @Param("height") Integer height,
+                         @Param("bitrateKbps") Integer bitrateKbps, @Param("videoCodec") String videoCodec,
+                         @Param("moovOffset") Long moovOffset);
+
+    // Hides the video at once; files and rows are removed later by MediaGarbageCollector
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.deleted = true, v.deletedAt = :deletedAt WHERE v.id = :id")
+    int softDelete(@Param("id") Long id, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Query("SELECT v.id FROM Video v WHERE v.videoBlob = :sha256")
+    List<Long> findIdsByVideoBlob(@Param("sha256") String sha256);
+
+    // Videos whose renditions and packages live in the given folder (key with a trailing
+    // slash), including older videos that keep them next to their original
+    @Query("SELECT v.id FROM Video v WHERE v.storageDir = :directory "
+            + "OR (v.storageDir IS NULL AND v.videoUrl LIKE CONCAT(:directory, '%'))")
+    List<Long> findIdsByMediaDirectory(@Param("directory") String directory);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.mediaTier = :tier WHERE v.id = :id")
+    int updateMediaTier(@Param("id") Long id, @Param("tier") MediaTier tier);
+
+    // Processed videos not yet on the cold tier, in id order from afterId
+    @Query("SELECT v FROM Video v WHERE v.id > :afterId AND v.createdAt < :createdBefore "
+            + "AND (v.mediaTier IS NULL OR v.mediaTier <> :cold) "
+            + "AND (v.processingStatus IS NULL OR v.processingStatus = :ready) ORDER BY v.id")
+    List<Video> findDemotionCandidates(@Param("cold") MediaTier cold, @Param("afterId") Long afterId,
+                                       @Param("createdBefore") LocalDateTime createdBefore,
+                                       @Param("ready") ProcessingStatus ready, Pageable pageable);
+
+    // Other videos sharing the original that still need it on the hot tier
+    @Query("SELECT COUNT(v) FROM Video v WHERE v.videoBlob = :sha256 AND v.id <> :id "
+            + "AND (v.mediaTier IS NULL OR v.mediaTier <> :cold)")
+    long countOtherHotByVideoBlob(@Param("sha256") String sha256, @Param("id") Long id,
+                                  @Param("cold") MediaTier cold);
+}
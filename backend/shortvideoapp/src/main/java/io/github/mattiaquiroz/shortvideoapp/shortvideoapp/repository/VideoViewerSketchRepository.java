@@ -0,0 +1,29 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.VideoViewerSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface VideoViewerSketchRepository extends JpaRepository<VideoViewerSketch, Long> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM VideoViewerSketch s WHERE s.videoId = :videoId")
+    int deleteByVideoId(@Param("videoId") Long videoId);
+
+    // Locks the sketches of the given videos until the transaction ends, in id order so
+    // concurrent flushes can't deadlock. Must run inside a transaction.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM VideoViewerSketch s WHERE s.videoId IN :videoIds ORDER BY s.videoId")
+    List<VideoViewerSketch> lockAll(@Param("videoIds") Collection<Long> videoIds);
+}
@@ -0,0 +1,146 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.MediaBlob;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.MediaBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+// Content-addressed, reference-counted store for uploaded media. Identical uploads (reposts,
+// re-uploads of a viral clip) share one file under assets/blobs/ab/cd/<sha256>, so they cost
+// disk once and warm the same page cache. Blobs are keyed by the hash of the bytes as
+// uploaded. Normalising (e.g. faststart) happens on the staged file before it is added; a
+// stored blob is never rewritten, since other videos and client caches depend on its bytes.
+@Service
+public class BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final String ROOT = "assets/blobs/";
+
+    @Autowired
+    private MediaBlobRepository blobRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    // Serialises add/remove of the same hash within this instance; the primary key and the
+    // refCount > 0 guards cover concurrent instances
+    private final Object[] locks = new Object[64];
+
+    public BlobStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Takes a reference to an existing blob and returns its path, or null if the content
+    // isn't stored yet
+    public String retain(String sha256) {
+        synchronized (lockFor(sha256)) {
+            if (blobRepository.retain(sha256) == 0) {
+                return null;
+            }
+            return blobRepository.findById(sha256).map(MediaBlob::getStoragePath).orElse(null);
+        }
+    }
+
+    // Moves a staged file into the store as a new blob with one reference and returns its
+    // path. If the same content got there first, that blob is referenced instead and the
+    // staged file is deleted.
+    public String store(String sha256, Path staged, String extension, String contentType) throws IOException {
+        String storagePath = ROOT + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + extension;
+        synchronized (lockFor(sha256)) {
+            String existing = retain(sha256);
+            if (existing != null) {
+                Files.deleteIfExists(staged);
+                return existing;
+            }
+            // A released blob whose row is still around would block the insert
+            blobRepository.deleteUnreferenced(sha256);
+
+            // The blob's volume follows its hash, so this may cross disks
+            Path target = mediaStore.locate(storagePath);
+            long size = Files.size(staged);
+            mediaStore.move(staged, target);
+            try {
+                blobRepository.saveAndFlush(new MediaBlob(sha256, storagePath, size, contentType));
+                return storagePath;
+            } catch (DataIntegrityViolationException e) {
+                // Another instance stored the same content meanwhile; the bytes are identical
+                existing = retain(sha256);
+                if (existing == null) {
+                    throw new IOException("Could not store blob " + sha256, e);
+                }
+                return existing;
+            }
+        }
+    }
+
+    // Drops one reference; the file goes once nothing references it
+    public void release(String sha256) {
+        if (sha256 == null) {
+            return;
+        }
+        synchronized (lockFor(sha256)) {
+            Optional<MediaBlob> blob = blobRepository.findById(sha256);
+            blobRepository.release(sha256);
+            if (blob.isPresent() && blobRepository.deleteUnreferenced(sha256) > 0) {
+                try {
+                    Files.deleteIfExists(mediaStore.resolve(blob.get().getStoragePath()));
+                } catch (IOException e) {
+                    logger.warn("Failed to delete blob {}", sha256, e);
+                }
+            }
+        }
+    }
+
+    // Deletes a blob whatever its count says; for references that leaked, e.g. from rows
+    // removed without going through release()
+    public void reclaim(String sha256) {
+        synchronized (lockFor(sha256)) {
+            Optional<MediaBlob> blob = blobRepository.findById(sha256);
+            if (blob.isEmpty()) {
+                return;
+            }
+            blobRepository.deleteById(sha256);
+            try {
+                Files.deleteIfExists(mediaStore.resolve(blob.get().getStoragePath()));
+            } catch (IOException e) {
+                logger.warn("Failed to delete blob {}", sha256, e);
+            }
+        }
+    }
+
+    // Hex SHA-256 of a file, for content that didn't arrive through MultipartIngestService
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Object lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), locks.length)];
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Transcodes with a local ffmpeg process into H.264/AAC MP4. Keyframes are forced on the
+// packaging segment boundaries so every rendition can be switched between at any segment.
+@Component
+@ConditionalOnProperty(name = "media.transcoder", havingValue = "ffmpeg", matchIfMissing = true)
+public class FfmpegTranscoder implements Transcoder {
+
+    @Value("${media.ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+
+    @Value("${media.packaging.segment-seconds:2}")
+    private int segmentSeconds;
+
+    @Value("${media.transcode.preset:veryfast}")
+    private String preset;
+
+    @Value("${media.transcode.timeout-minutes:60}")
+    private long timeoutMinutes;
+
+    @Override
+    public void transcode(Path source, Path target, RenditionProfile profile) throws IOException, InterruptedException {
+        int videoKbps = profile.getVideoKbps();
+        List<String> command = List.of(
+                ffmpegPath, "-nostdin", "-y", "-loglevel", "error",
+                "-i", source.toAbsolutePath().toString(),
+                "-map", "0:v:0", "-map", "0:a:0?",
+                // Never upscale sources smaller than the rung
+                "-vf", "scale=-2:'min(" + profile.getHeight() + ",ih)'",
+                "-c:v", "libx264", "-preset", preset, "-profile:v", "main", "-pix_fmt", "yuv420p",
+                "-b:v", videoKbps + "k", "-maxrate", (videoKbps * 107 / 100) + "k", "-bufsize", (videoKbps * 3 / 2) + "k",
+                "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")", "-sc_threshold", "0",
+                "-c:a", "aac", "-b:a", profile.getAudioKbps() + "k", "-ac", "2",
+                "-movflags", "+faststart",
+                target.toAbsolutePath().toString());
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (!process.waitFor(timeoutMinutes, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IOException("ffmpeg timed out transcoding " + profile.getName());
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("ffmpeg exited with status " + process.exitValue() + " transcoding " + profile.getName());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps read-only channels of recently streamed files open so hot videos are not
+// re-opened on every range request. Channels are reference counted: an evicted
+// channel is only closed once the last in-flight transfer has released it.
+@Component
+public class FileChannelPool {
+
+    @Value("${stream.channel-pool.max-open:64}")
+    private int maxOpen;
+
+    private final LinkedHashMap<Path, PooledChannel> channels = new LinkedHashMap<>(16, 0.75f, true);
+
+    public Lease acquire(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        synchronized (channels) {
+            PooledChannel pooled = channels.get(key);
+            if (pooled != null && pooled.retain()) {
+                return new Lease(pooled);
+            }
+        }
+
+        PooledChannel opened = new PooledChannel(FileChannel.open(key, StandardOpenOption.READ));
+        List<PooledChannel> evicted = new ArrayList<>();
+        PooledChannel leased;
+        synchronized (channels) {
+            PooledChannel existing = channels.get(key);
+            if (existing != null && existing.retain()) {
+                // Another thread opened the same file while we were opening ours
+                leased = existing;
+                evicted.add(opened);
+            } else {
+                channels.put(key, opened);
+                opened.retain();
+                leased = opened;
+                Iterator<Map.Entry<Path, PooledChannel>> it = channels.entrySet().iterator();
+                while (channels.size() > maxOpen && it.hasNext()) {
+                    evicted.add(it.next().getValue());
+                    it.remove();
+                }
+            }
+        }
+        evicted.forEach(PooledChannel::release);
+        return new Lease(leased);
+    }
+
+    public void invalidate(Path path) {
+        PooledChannel removed;
+        synchronized (channels) {
+            removed = channels.remove(path.toAbsolutePath().normalize());
+        }
+        if (removed != null) {
+            removed.release();
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        List<PooledChannel> open;
+        synchronized (channels) {
+            open = new ArrayList<>(channels.values());
+            channels.clear();
+        }
+        open.forEach(PooledChannel::release);
+    }
+
+    public static final class Lease implements AutoCloseable {
+        private final PooledChannel pooled;
+        private boolean released;
+
+        private Lease(PooledChannel pooled) {
+            this.pooled = pooled;
+        }
+
+        public FileChannel channel() {
+            return pooled.channel;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                pooled.release();
+            }
+        }
+    }
+
+    private static final class PooledChannel {
+        private final FileChannel channel;
+        // One reference is held by the pool itself until the channel is evicted
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private PooledChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = refs.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (refs.decrementAndGet() == 0) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing useful to do with a failed close of a read-only channel
+                }
+            }
+        }
+    }
+}
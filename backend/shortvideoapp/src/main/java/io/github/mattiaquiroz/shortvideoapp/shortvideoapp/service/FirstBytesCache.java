@@ -0,0 +1,254 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.FrequencySketch;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.SlabArena;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Off-heap cache of the leading bytes (ftyp/moov and the first GOPs) of popular videos.
+// A swipe feed mostly reads just this prefix, so hits never touch the file. Entries are
+// keyed by video id and validated against the file's ETag; admission and eviction follow
+// TinyLFU over an LRU order.
+@Component
+public class FirstBytesCache {
+
+    @Autowired
+    private FileChannelPool channelPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${stream.first-bytes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stream.first-bytes.prefix-bytes:524288}")
+    private int prefixBytes;
+
+    @Value("${stream.first-bytes.capacity-bytes:268435456}")
+    private long capacityBytes;
+
+    @Value("${stream.first-bytes.slab-bytes:65536}")
+    private int slabBytes;
+
+    private SlabArena arena;
+    private FrequencySketch sketch;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void init() {
+        arena = new SlabArena(capacityBytes, slabBytes);
+        sketch = new FrequencySketch((int) Math.max(64, capacityBytes / Math.max(1, prefixBytes)));
+
+        hits = Counter.builder("stream.first.bytes.requests").tag("result", "hit")
+                .description("Range reads answered from the first-bytes cache").register(meterRegistry);
+        misses = Counter.builder("stream.first.bytes.requests").tag("result", "miss")
+                .description("Range reads within the prefix that had to go to disk").register(meterRegistry);
+        evictions = Counter.builder("stream.first.bytes.evictions").register(meterRegistry);
+        Gauge.builder("stream.first.bytes.used", arena, SlabArena::usedBytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("stream.first.bytes.entries", this, FirstBytesCache::size).register(meterRegistry);
+    }
+
+    // Writes as much of [start, start + length) as the cached prefix covers and returns the
+    // number of bytes written. 0 means the caller must serve the whole region from the file.
+    public long write(Long videoId, String etag, Path path, long fileLength,
+                      long start, long length, OutputStream out) throws IOException {
+        if (!enabled || start >= prefixBytes || length <= 0) {
+            return 0;
+        }
+
+        sketch.increment(videoId);
+        Entry entry = lookup(videoId, etag);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            entry = load(videoId, etag, path, fileLength);
+            if (entry == null) {
+                return 0;
+            }
+        }
+
+        try {
+            long count = Math.min(length, entry.length - start);
+            if (count <= 0) {
+                return 0;
+            }
+            copy(entry, start, count, out);
+            return count;
+        } finally {
+            entry.release();
+        }
+    }
+
+    public void invalidate(Long videoId) {
+        Entry removed;
+        synchronized (entries) {
+            removed = entries.remove(videoId);
+        }
+        if (removed != null) {
+            removed.release();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Entry lookup(Long videoId, String etag) {
+        Entry stale = null;
+        synchronized (entries) {
+            Entry entry = entries.get(videoId);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.etag.equals(etag) && entry.retain()) {
+                return entry;
+            }
+            // File was replaced since the prefix was cached
+            stale = entries.remove(videoId);
+        }
+        stale.release();
+        return null;
+    }
+
+    private Entry load(Long videoId, String etag, Path path, long fileLength) throws IOException {
+        int length = (int) Math.min(prefixBytes, fileLength);
+        if (length <= 0) {
+            return null;
+        }
+
+        ByteBuffer[] slabs;
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (entries) {
+            int needed = arena.slabsFor(length);
+            int candidateFrequency = sketch.frequency(videoId);
+            Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+            while (arena.availableSlabs() + pendingSlabs(evicted) < needed && it.hasNext()) {
+                Entry victim = it.next().getValue();
+                // Only displace entries that are less popular than the newcomer
+                if (sketch.frequency(victim.videoId) >= candidateFrequency) {
+                    break;
+                }
+                evicted.add(victim);
+                it.remove();
+            }
+        }
+        evicted.forEach(Entry::release);
+        evictions.increment(evicted.size());
+
+        slabs = arena.allocate(length);
+        if (slabs == null) {
+            return null;
+        }
+
+        try (FileChannelPool.Lease lease = channelPool.acquire(path)) {
+            long position = 0;
+            for (ByteBuffer slab : slabs) {
+                slab.limit((int) Math.min(slab.capacity(), length - position));
+                while (slab.hasRemaining()) {
+                    if (lease.channel().read(slab, position + slab.position()) < 0) {
+                        throw new IOException("File shorter than expected: " + path);
+                    }
+                }
+                position += slab.limit();
+                slab.flip();
+            }
+        } catch (IOException e) {
+            arena.release(slabs);
+            throw e;
+        }
+
+        Entry entry = new Entry(videoId, etag, slabs, length);
+        entry.retain();
+        Entry replaced;
+        synchronized (entries) {
+            replaced = entries.put(videoId, entry);
+        }
+        if (replaced != null) {
+            replaced.release();
+        }
+        return entry;
+    }
+
+    private int pendingSlabs(List<Entry> evicted) {
+        int slabs = 0;
+        for (Entry entry : evicted) {
+            slabs += entry.slabs.length;
+        }
+        return slabs;
+    }
+
+    private void copy(Entry entry, long start, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        int slabSize = arena.slabSize();
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            ByteBuffer slab = entry.slabs[(int) (position / slabSize)].duplicate();
+            int offset = (int) (position % slabSize);
+            slab.position(offset);
+            slab.limit((int) Math.min(slab.limit(), offset + (end - position)));
+            position += slab.remaining();
+            while (slab.hasRemaining()) {
+                target.write(slab);
+            }
+        }
+    }
+
+    private final class Entry {
+        private final Long videoId;
+        private final String etag;
+        private final ByteBuffer[] slabs;
+        private final int length;
+        // One reference is held by the cache itself; slabs are recycled once readers finish
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private Entry(Long videoId, String etag, ByteBuffer[] slabs, int length) {
+            this.videoId = videoId;
+            this.etag = etag;
+            this.slabs = slabs;
+            this.length = length;
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = refs.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (refs.decrementAndGet() == 0) {
+                arena.release(slabs);
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.ByteBufferResource;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.FileValidators;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Byte-bounded LRU cache of small images (thumbnails, profile pictures) held in direct
+// buffers along with their content type and validators. A hit only re-stats the file once
+// per revalidate interval, so hot images are served without touching the filesystem.
+// Pinned paths (the default avatar) are never evicted.
+@Component
+public class ImageCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Value("${media.image-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.image-cache.capacity-bytes:67108864}")
+    private long capacityBytes;
+
+    @Value("${media.image-cache.max-entry-bytes:2097152}")
+    private long maxEntryBytes;
+
+    @Value("${media.image-cache.revalidate-millis:5000}")
+    private long revalidateMillis;
+
+    @Value("${media.image-cache.pinned:assets/users/default_picture.jpg}")
+    private List<String> pinnedPaths;
+
+    private Set<Path> pinned;
+    private final LinkedHashMap<Path, Image> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        // Callers look images up by their resolved volume path, so pin the same path. The
+        // owning volume's path is pinned too: the rebalancer moves a file there after startup.
+        pinned = pinnedPaths.stream()
+                .flatMap(key -> Stream.of(mediaStore.resolve(key), mediaStore.locate(key)))
+                .collect(Collectors.toUnmodifiableSet());
+
+        hits = Counter.builder("media.image.cache.requests").tag("result", "hit")
+                .description("Image requests answered from memory").register(meterRegistry);
+        misses = Counter.builder("media.image.cache.requests").tag("result", "miss")
+                .description("Image requests that had to read the file").register(meterRegistry);
+        Gauge.builder("media.image.cache.used", this, ImageCache::usedBytes).baseUnit("bytes").register(meterRegistry);
+
+        // Warm the pinned images so the first feed page doesn't hit the disk for them
+        for (String key : pinnedPaths) {
+            try {
+                get(mediaStore.resolve(key));
+            } catch (IOException ignored) {
+                // Loaded on first request instead
+            }
+        }
+    }
+
+    // Returns the image at the given path, or null if it is not a regular file
+    public Image get(Path path) throws IOException {
+        if (!enabled) {
+            return load(path, false);
+        }
+
+        long now = System.nanoTime();
+        Image cached;
+        synchronized (entries) {
+            cached = entries.get(path);
+        }
+        if (cached != null && now - cached.checkedAt < TimeUnit.MILLISECONDS.toNanos(revalidateMillis)) {
+            hits.increment();
+            return cached;
+        }
+
+        BasicFileAttributes attributes = readAttributes(path);
+        if (attributes == null) {
+            remove(path);
+            return null;
+        }
+        if (cached != null && cached.etag.equals(FileValidators.strongETag(attributes))) {
+            // Unchanged on disk; trust it for another interval
+            cached.checkedAt = now;
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        Image image = load(path, attributes, true);
+        if (image.buffer != null) {
+            put(path, image);
+        } else {
+            remove(path);
+        }
+        return image;
+    }
+
+    public void invalidate(Path path) {
+        remove(path);
+    }
+
+    public long usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private Image load(Path path, boolean cacheable) throws IOException {
+        BasicFileAttributes attributes = readAttributes(path);
+        return attributes != null ? load(path, attributes, cacheable) : null;
+    }
+
+    private Image load(Path path, BasicFileAttributes attributes, boolean cacheable) throws IOException {
+        String contentType = Files.probeContentType(path);
+        if (contentType == null) {
+            contentType = "image/jpeg"; // Default to JPEG
+        }
+        String etag = FileValidators.strongETag(attributes);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        // Oversized images are served from the file every time rather than flushing the cache
+        if (!cacheable || attributes.size() > maxEntryBytes) {
+            return new Image(null, new FileSystemResource(path), contentType, etag, lastModified);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) attributes.size());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+        }
+        buffer.flip();
+        return new Image(buffer, new ByteBufferResource(buffer, path.toString()), contentType, etag, lastModified);
+    }
+
+    private void put(Path path, Image image) {
+        boolean isPinned = pinned.contains(path);
+        synchronized (entries) {
+            Image replaced = entries.put(path, image);
+            if (replaced != null) {
+                usedBytes -= replaced.size();
+            }
+            usedBytes += image.size();
+
+            Iterator<Map.Entry<Path, Image>> it = entries.entrySet().iterator();
+            while (usedBytes > capacityBytes && it.hasNext()) {
+                Map.Entry<Path, Image> eldest = it.next();
+                if (eldest.getValue() == image || pinned.contains(eldest.getKey())) {
+                    continue;
+                }
+                usedBytes -= eldest.getValue().size();
+                it.remove();
+            }
+            // Only pinned entries may push the cache over its budget
+            if (usedBytes > capacityBytes && !isPinned) {
+                entries.remove(path);
+                usedBytes -= image.size();
+            }
+        }
+    }
+
+    private void remove(Path path) {
+        synchronized (entries) {
+            Image removed = entries.remove(path);
+            if (removed != null) {
+                usedBytes -= removed.size();
+            }
+        }
+    }
+
+    private BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    public static final class Image {
+        private final ByteBuffer buffer;
+        private final Resource resource;
+        private final String contentType;
+        private final String etag;
+        private final long lastModified;
+        private volatile long checkedAt = System.nanoTime();
+
+        private Image(ByteBuffer buffer, Resource resource, String contentType, String etag, long lastModified) {
+            this.buffer = buffer;
+            this.resource = resource;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        private long size() {
+            return buffer != null ? buffer.capacity() : 0;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Removes what deleted videos leave behind, off the request path. Soft-deleted videos are
+// purged after a grace period: per-video folder, blob references, dependent rows, then the
+// video row. A slower reconciliation pass compares the disk with the database and reclaims
+// folders and blobs nothing references, including ones leaked before soft delete existed.
+// Every run deletes at most a fixed number of files; whatever is left waits for the next run.
+@Service
+public class MediaGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaGarbageCollector.class);
+
+    private static final Path VIDEOS_ROOT = Paths.get("assets/videos");
+    private static final Path BLOBS_ROOT = Paths.get("assets/blobs");
+
+    // JDBC rather than JPA: Video's soft-delete restriction would hide exactly these rows
+    private static final String DELETED_VIDEOS_SQL = "SELECT id, video_url, storage_dir, video_blob, thumbnail_blob "
+            + "FROM videos WHERE deleted = true AND deleted_at < ? ORDER BY deleted_at LIMIT ?";
+    private static final String USER_VIDEOS_SQL = "SELECT id, video_url, storage_dir, video_blob, thumbnail_blob "
+            + "FROM videos WHERE user_id = ?";
+    private static final String[] PURGE_SQL = {
+        "DELETE FROM comment_likes WHERE comment_id IN (SELECT id FROM comments WHERE video_id = ?)",
+        "DELETE FROM comments WHERE video_id = ?",
+        "DELETE FROM likes WHERE video_id = ?",
+        "DELETE FROM video_renditions WHERE video_id = ?",
+        "DELETE FROM video_viewer_sketches WHERE video_id = ?",
+        "DELETE FROM processing_jobs WHERE video_id = ?",
+        "DELETE FROM videos WHERE id = ?"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // How long a deleted video's files survive, e.g. for players still mid-stream
+    @Value("${media.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${media.gc.batch-size:50}")
+    private int batchSize;
+
+    // Deletion budget per run, which is what rate-limits the collector
+    @Value("${media.gc.max-files-per-run:2000}")
+    private int maxFilesPerRun;
+
+    // Unreferenced folders and blobs younger than this may belong to an upload in progress;
+    // keep it above upload.resumable.ttl-minutes
+    @Value("${media.gc.orphan-grace-hours:48}")
+    private long orphanGraceHours;
+
+    private TransactionTemplate transactions;
+
+    @PostConstruct
+    public void init() {
+        transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.interval-millis:60000}",
+            initialDelayString = "${media.gc.interval-millis:60000}")
+    public void sweepDeleted() {
+        Budget budget = new Budget(maxFilesPerRun);
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusMinutes(graceMinutes));
+        List<VideoFiles> deleted = jdbcTemplate.query(DELETED_VIDEOS_SQL,
+                (rs, row) -> VideoFiles.from(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)),
+                cutoff, batchSize);
+
+        for (VideoFiles video : deleted) {
+            // The row goes only once the folder is gone, so an unfinished folder is retried
+            if (video.directory != null && !deleteEverywhere(video.directory, budget)) {
+                break;
+            }
+            purge(video);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.reconcile-interval-millis:21600000}",
+            initialDelayString = "${media.gc.reconcile-initial-delay-millis:300000}")
+    public void reconcile() {
+        Budget budget = new Budget(maxFilesPerRun);
+        Instant cutoff = Instant.now().minusSeconds(orphanGraceHours * 3600);
+        try {
+            reconcileVideoFolders(cutoff, budget);
+            reconcileBlobs(cutoff, budget);
+        } catch (IOException e) {
+            logger.warn("Media reconciliation stopped early", e);
+        }
+    }
+
+    // Removes a user's videos, deleted or not, so the user row can go. Blob references are
+    // dropped now; the folders are left to reconciliation.
+    public void purgeAllOf(Long userId) {
+        List<VideoFiles> videos = jdbcTemplate.query(USER_VIDEOS_SQL,
+                (rs, row) -> VideoFiles.from(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)),
+                userId);
+        videos.forEach(this::purge);
+    }
+
+    private void purge(VideoFiles video) {
+        transactions.executeWithoutResult(status -> {
+            for (String sql : PURGE_SQL) {
+                jdbcTemplate.update(sql, video.id);
+            }
+        });
+        blobStore.release(video.videoBlob);
+        blobStore.release(video.thumbnailBlob);
+    }
+
+    private void reconcileVideoFolders(Instant cutoff, Budget budget) throws IOException {
+        // Every row counts, soft-deleted ones included: their folders belong to sweepDeleted
+        Set<Path> referenced = new HashSet<>();
+        jdbcTemplate.query("SELECT video_url, storage_dir FROM videos", rs -> {
+            VideoFiles files = VideoFiles.from(0, rs.getString(1), rs.getString(2), null, null);
+            if (files.directory != null) {
+                referenced.add(files.directory);
+            }
+        });
+
+        // Layout: assets/videos/{fan-out or user_{id}}/{key}/ on every volume, cold tier included
+        for (Path volume : volumes()) {
+            for (Path parentDir : list(volume.resolve(VIDEOS_ROOT))) {
+                for (Path videoDir : list(parentDir)) {
+                    if (referenced.contains(volume.relativize(videoDir).normalize()) || !olderThan(videoDir, cutoff)) {
+                        continue;
+                    }
+                    logger.info("Reclaiming orphaned video folder {}", videoDir);
+                    if (!deleteTree(videoDir, budget)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void reconcileBlobs(Instant cutoff, Budget budget) throws IOException {
+        Timestamp rowCutoff = Timestamp.from(cutoff);
+
+        // Rows whose references leaked, e.g. from videos removed along with their user
+        List<String> unreferenced = jdbcTemplate.queryForList("SELECT b.sha256 FROM media_blobs b "
+                        + "WHERE b.created_at < ? AND NOT EXISTS (SELECT 1 FROM videos v "
+                        + "WHERE v.video_blob = b.sha256 OR v.thumbnail_blob = b.sha256) LIMIT ?",
+                String.class, rowCutoff, batchSize);
+        for (String sha256 : unreferenced) {
+            if (!budget.take()) {
+                return;
+            }
+            logger.info("Reclaiming unreferenced blob {}", sha256);
+            blobStore.reclaim(sha256);
+        }
+
+        // Files without a row, e.g. left by a crash between the move and the insert
+        Set<String> known = new HashSet<>(jdbcTemplate.queryForList("SELECT storage_path FROM media_blobs", String.class));
+        for (Path volume : volumes()) {
+            Path blobsRoot = volume.resolve(BLOBS_ROOT);
+            for (Path first : list(blobsRoot)) {
+                for (Path second : list(first)) {
+                    for (Path file : list(second)) {
+                        String storagePath = blobsRoot.relativize(file).toString().replace('\\', '/');
+                        if (known.contains("assets/blobs/" + storagePath) || !olderThan(file, cutoff)) {
+                            continue;
+                        }
+                        if (!budget.take()) {
+                            return;
+                        }
+                        logger.info("Reclaiming orphaned blob file {}", file);
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+    }
+
+    // Hot volumes and the cold tier
+    private List<Path> volumes() {
+        List<Path> volumes = new ArrayList<>(mediaStore.getVolumes());
+        if (mediaStore.getColdVolume() != null) {
+            volumes.add(mediaStore.getColdVolume());
+        }
+        return volumes;
+    }
+
+    // A folder may sit on more than one volume while a rebalance or tier move is copying it
+    private boolean deleteEverywhere(Path directory, Budget budget) {
+        for (Path volume : volumes()) {
+            if (!deleteTree(volume.resolve(directory), budget)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Deletes files bottom-up within the budget. Returns true once the tree is gone.
+    private boolean deleteTree(Path root, Budget budget) {
+        if (!Files.exists(root)) {
+            return true;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(root)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        } catch (IOException e) {
+            logger.warn("Failed to list {}", root, e);
+            return false;
+        }
+        for (Path path : paths) {
+            if (!budget.take()) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete {}", path, e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            return new ArrayList<>(children.toList());
+        }
+    }
+
+    private static boolean olderThan(Path path, Instant cutoff) throws IOException {
+        return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+    }
+
+    private static final class Budget {
+        private int remaining;
+
+        private Budget(int remaining) {
+            this.remaining = remaining;
+        }
+
+        private boolean take() {
+            if (remaining <= 0) {
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+    }
+
+    private static final class VideoFiles {
+        private final long id;
+        // Per-video folder under assets/videos relative to a volume, or null if there is none
+        private final Path directory;
+        private final String videoBlob;
+        private final String thumbnailBlob;
+
+        private VideoFiles(long id, Path directory, String videoBlob, String thumbnailBlob) {
+            this.id = id;
+            this.directory = directory;
+            this.videoBlob = videoBlob;
+            this.thumbnailBlob = thumbnailBlob;
+        }
+
+        private static VideoFiles from(long id, String videoUrl, String storageDir, String videoBlob, String thumbnailBlob) {
+            Path directory = null;
+            if (storageDir != null) {
+                directory = Paths.get(storageDir).normalize();
+            } else if (videoUrl != null) {
+                // Before the blob store, the original sat in its own folder
+                Path parent = Paths.get(videoUrl.startsWith("assets/") ? videoUrl : "assets/" + videoUrl).normalize().getParent();
+                directory = parent;
+            }
+            // Never let a bad row point the collector outside the per-video folders
+            if (directory != null && (!directory.startsWith(VIDEOS_ROOT) || directory.getNameCount() != 4)) {
+                directory = null;
+            }
+            return new VideoFiles(id, directory, videoBlob, thumbnailBlob);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.MediaFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Moves media onto the volume that owns it after media.store.volumes changed, e.g. when a
+// disk was added. Works a placement unit at a time (a video folder, a blob, a user's
+// pictures): copy everything to the owner, drop the cached descriptors of the videos using
+// it so their streams reopen the new copy, then delete the old one. Until a unit has moved, MediaStore.resolve() still
+// finds it where it was, so nothing becomes unreachable while this runs.
+@Service
+public class MediaRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaRebalancer.class);
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Value("${media.store.rebalance-on-startup:true}")
+    private boolean rebalanceOnStartup;
+
+    // Units with a file changed more recently may still be written to (an upload in
+    // progress, a packaging run) and wait for the next rebalance
+    @Value("${media.store.rebalance-min-idle-minutes:60}")
+    private long minIdleMinutes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!rebalanceOnStartup || mediaStore.getVolumes().size() < 2) {
+            return;
+        }
+        Thread thread = new Thread(this::rebalance, "media-rebalancer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Returns the number of units moved
+    public synchronized int rebalance() {
+        Instant idleSince = Instant.now().minusSeconds(minIdleMinutes * 60);
+        int moved = 0;
+        for (Path volume : mediaStore.getVolumes()) {
+            try {
+                for (Path unit : units(volume)) {
+                    String key = volume.relativize(unit).toString().replace('\\', '/');
+                    Path owner = mediaStore.locate(key);
+                    if (owner.startsWith(volume)) {
+                        continue;
+                    }
+                    try {
+                        if (move(key, unit, owner, idleSince)) {
+                            moved++;
+                        }
+                    } catch (IOException e) {
+                        logger.warn("Failed to move {} to {}", unit, owner, e);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to scan volume {}", volume, e);
+            }
+        }
+        if (moved > 0) {
+            logger.info("Rebalanced {} media units across {} volumes", moved, mediaStore.getVolumes().size());
+        }
+        return moved;
+    }
+
+    // assets/videos/*/{key}, assets/blobs/*/*/{file} and assets/users/{user}
+    private List<Path> units(Path volume) throws IOException {
+        List<Path> units = new ArrayList<>();
+        for (Path parent : list(volume.resolve("assets/videos"))) {
+            units.addAll(list(parent));
+        }
+        for (Path first : list(volume.resolve("assets/blobs"))) {
+            for (Path second : list(first)) {
+                units.addAll(list(second));
+            }
+        }
+        units.addAll(list(volume.resolve("assets/users")));
+        return units;
+    }
+
+    private boolean move(String key, Path source, Path target, Instant idleSince) throws IOException {
+        for (Path file : MediaFiles.regularFiles(source)) {
+            if (!Files.getLastModifiedTime(file).toInstant().isBefore(idleSince)) {
+                return false;
+            }
+        }
+        List<Path> copied = MediaFiles.copyTree(source, target);
+
+        // Descriptors hold resolved paths; reload them before the old files disappear
+        usersOf(key).forEach(streamDescriptors::invalidate);
+
+        MediaFiles.deleteCopied(source, copied);
+        return true;
+    }
+
+    // Videos with a descriptor that may point into the unit. Profile pictures have none.
+    private List<Long> usersOf(String key) {
+        if (key.startsWith("assets/videos/")) {
+            return videoRepository.findIdsByMediaDirectory(key + "/");
+        }
+        if (key.startsWith("assets/blobs/")) {
+            String fileName = key.substring(key.lastIndexOf('/') + 1);
+            int dot = fileName.indexOf('.');
+            return videoRepository.findIdsByVideoBlob(dot < 0 ? fileName : fileName.substring(0, dot));
+        }
+        return List.of();
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            return children.toList();
+        }
+    }
+}
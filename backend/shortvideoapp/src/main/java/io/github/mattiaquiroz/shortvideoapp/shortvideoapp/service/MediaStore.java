@@ -0,0 +1,30 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Maps the storage keys kept in the database ("assets/videos/...", "assets/blobs/...") to
+// files. Keys never change when objects move between volumes; only this mapping does.
+// Implementations are selected with media.store.
+public interface MediaStore {
+
+    // Where the object currently is: its owning volume, wherever it still sits while a
+    // rebalance hasn't moved it yet, or the cold tier
+    Path resolve(String key);
+
+    // Where a new object with this key must be written
+    Path locate(String key);
+
+    // Hot volumes only
+    List<Path> getVolumes();
+
+    // Directory of the cold tier, or null if there is none
+    Path getColdVolume();
+
+    // Where the object goes when moved to the cold tier; null if there is none
+    Path locateCold(String key);
+
+    // Moves a file to target, which may be on another volume; target appears atomically
+    void move(Path source, Path target) throws IOException;
+}
@@ -0,0 +1,267 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.MediaTier;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingStatus;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.MediaFiles;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps what people watch on the fast volumes and moves the rest to the cold volume. Every
+// playback start adds a hit to the video's heat, which halves every half-life. A periodic
+// pass demotes videos whose heat stayed low; a cold video that heats up again is promoted
+// in the background while it keeps streaming from the cold copy. Files are copied, the
+// tier recorded and descriptors dropped before the old copy goes, and MediaStore.resolve()
+// finds whichever copy exists, so stored paths never change. Off unless
+// media.store.cold-volume is set.
+@Service
+public class MediaTieringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaTieringService.class);
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Value("${media.tier.half-life-hours:24}")
+    private double halfLifeHours;
+
+    // Videos younger than this stay hot. Heat only covers this process's lifetime, so nothing
+    // is demoted until the process has been up this long either.
+    @Value("${media.tier.cold-after-hours:72}")
+    private long coldAfterHours;
+
+    // Demote at or below this heat; 1.0 is about one playback per half-life
+    @Value("${media.tier.demote-max-heat:1.0}")
+    private double demoteMaxHeat;
+
+    // Promote a cold video once its heat reaches this
+    @Value("${media.tier.promote-min-heat:3.0}")
+    private double promoteMinHeat;
+
+    @Value("${media.tier.batch-size:100}")
+    private int batchSize;
+
+    @Value("${media.tier.max-demotions-per-run:200}")
+    private int maxDemotionsPerRun;
+
+    private final Map<Long, Heat> heat = new ConcurrentHashMap<>();
+    // Videos being moved either way, so a promotion never races a demotion
+    private final Set<Long> moving = ConcurrentHashMap.newKeySet();
+    private final long startedAt = System.currentTimeMillis();
+    private ExecutorService promotions;
+    private long halfLifeMillis;
+    // Where the next demotion pass continues; wraps around at the end of the table
+    private long cursor;
+
+    @PostConstruct
+    public void init() {
+        halfLifeMillis = Math.max(1, (long) (halfLifeHours * 3_600_000));
+        promotions = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-promotion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        promotions.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return mediaStore.getColdVolume() != null;
+    }
+
+    // Counts a playback start and promotes a cold video that became popular again
+    public void recordAccess(StreamDescriptor descriptor) {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Heat current = heat.computeIfAbsent(descriptor.getVideoId(), id -> new Heat());
+        double value = current.add(now, halfLifeMillis);
+        if (descriptor.isCold() && value >= promoteMinHeat) {
+            Long videoId = descriptor.getVideoId();
+            if (moving.add(videoId)) {
+                promotions.execute(() -> {
+                    try {
+                        promote(videoId);
+                    } finally {
+                        moving.remove(videoId);
+                    }
+                });
+            }
+        }
+    }
+
+    public double heatOf(Long videoId) {
+        Heat current = heat.get(videoId);
+        return current != null ? current.value(System.currentTimeMillis(), halfLifeMillis) : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${media.tier.interval-millis:3600000}",
+            initialDelayString = "${media.tier.interval-millis:3600000}")
+    public void demoteCold() {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Forget videos whose heat has decayed to nothing
+        heat.entrySet().removeIf(entry -> entry.getValue().value(now, halfLifeMillis) < 0.01);
+        if (now - startedAt < coldAfterHours * 3_600_000) {
+            return;
+        }
+
+        LocalDateTime createdBefore = LocalDateTime.now().minusHours(coldAfterHours);
+        int demoted = 0;
+        int scanned = 0;
+        // At most one pass over the table per run
+        while (demoted < maxDemotionsPerRun) {
+            List<Video> candidates = videoRepository.findDemotionCandidates(MediaTier.COLD, cursor, createdBefore,
+                    ProcessingStatus.READY, PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                cursor = 0;
+                break;
+            }
+            for (Video video : candidates) {
+                cursor = video.getId();
+                scanned++;
+                if (demoted < maxDemotionsPerRun && heatOf(video.getId()) <= demoteMaxHeat && demote(video)) {
+                    demoted++;
+                }
+            }
+        }
+        if (demoted > 0) {
+            logger.info("Moved {} of {} scanned videos to the cold tier", demoted, scanned);
+        }
+    }
+
+    private boolean demote(Video video) {
+        if (!moving.add(video.getId())) {
+            return false;
+        }
+        try {
+            String directory = VideoPackagingService.mediaDirectory(video);
+            Path hotDirectory = mediaStore.resolve(directory);
+            List<Path> copied = new ArrayList<>();
+            if (Files.isDirectory(hotDirectory) && !onColdVolume(hotDirectory)) {
+                copied.addAll(MediaFiles.copyTree(hotDirectory, mediaStore.locateCold(directory)));
+            }
+
+            // The original is shared by every upload of the same content; it moves with the
+            // last of them to go cold
+            Path hotOriginal = null;
+            List<Long> sharing = List.of(video.getId());
+            if (video.getVideoBlob() != null
+                    && videoRepository.countOtherHotByVideoBlob(video.getVideoBlob(), video.getId(), MediaTier.COLD) == 0) {
+                Path original = mediaStore.resolve(video.getVideoUrl());
+                if (Files.isRegularFile(original) && !onColdVolume(original)) {
+                    MediaFiles.copy(original, mediaStore.locateCold(video.getVideoUrl()));
+                    hotOriginal = original;
+                    sharing = videoRepository.findIdsByVideoBlob(video.getVideoBlob());
+                }
+            }
+
+            videoRepository.updateMediaTier(video.getId(), MediaTier.COLD);
+            // Streams reopen the cold copy from here on
+            sharing.forEach(streamDescriptors::invalidate);
+
+            MediaFiles.deleteCopied(hotDirectory, copied);
+            if (hotOriginal != null) {
+                Files.deleteIfExists(hotOriginal);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to move video {} to the cold tier", video.getId(), e);
+            return false;
+        } finally {
+            moving.remove(video.getId());
+        }
+    }
+
+    private void promote(Long videoId) {
+        Video video = videoRepository.findById(videoId).orElse(null);
+        if (video == null || video.getMediaTier() != MediaTier.COLD) {
+            return;
+        }
+        try {
+            String directory = VideoPackagingService.mediaDirectory(video);
+            Path coldDirectory = mediaStore.locateCold(directory);
+            List<Path> copied = new ArrayList<>();
+            if (Files.isDirectory(coldDirectory)) {
+                copied.addAll(MediaFiles.copyTree(coldDirectory, mediaStore.locate(directory)));
+            }
+
+            Path coldOriginal = null;
+            List<Long> sharing = List.of(videoId);
+            Path original = mediaStore.resolve(video.getVideoUrl());
+            if (Files.isRegularFile(original) && onColdVolume(original)) {
+                MediaFiles.copy(original, mediaStore.locate(video.getVideoUrl()));
+                coldOriginal = original;
+                if (video.getVideoBlob() != null) {
+                    sharing = videoRepository.findIdsByVideoBlob(video.getVideoBlob());
+                }
+            }
+
+            videoRepository.updateMediaTier(videoId, MediaTier.HOT);
+            sharing.forEach(streamDescriptors::invalidate);
+
+            MediaFiles.deleteCopied(coldDirectory, copied);
+            if (coldOriginal != null) {
+                Files.deleteIfExists(coldOriginal);
+            }
+            logger.info("Moved video {} back to the hot tier", videoId);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to move video {} to the hot tier", videoId, e);
+        }
+    }
+
+    private boolean onColdVolume(Path path) {
+        return path.toAbsolutePath().normalize().startsWith(mediaStore.getColdVolume());
+    }
+
+    // Hit count that halves every half-life
+    private static final class Heat {
+        private double value;
+        private long updatedAt;
+
+        private synchronized double add(long now, long halfLifeMillis) {
+            value = value(now, halfLifeMillis) + 1;
+            updatedAt = now;
+            return value;
+        }
+
+        private synchronized double value(long now, long halfLifeMillis) {
+            if (value == 0) {
+                return 0;
+            }
+            return value * Math.pow(0.5, (double) (now - updatedAt) / halfLifeMillis);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.MultipartStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Writes multipart file parts straight from the request body to their final location,
+// hashing, size-checking and sniffing the content type as the bytes go by. Replaces the
+// servlet container's spool-to-temp-then-copy for the upload endpoints.
+@Service
+public class MultipartIngestService {
+
+    private static final int COPY_BUFFER = 64 * 1024;
+    // Enough to recognise every supported container from its leading bytes
+    private static final int SNIFF_BYTES = 16;
+
+    @Value("${spring.servlet.multipart.max-request-size:500MB}")
+    private DataSize maxRequestSize;
+
+    @Value("${spring.servlet.multipart.max-file-size:500MB}")
+    private DataSize maxVideoSize;
+
+    @Value("${upload.image.max-bytes:10485760}")
+    private long maxImageBytes;
+
+    public enum Kind { VIDEO, IMAGE }
+
+    // Returns a parser over the request body, or null if it isn't multipart
+    public MultipartStream open(HttpServletRequest request) throws IOException {
+        String boundary = MultipartStream.boundary(request.getContentType());
+        if (boundary == null) {
+            return null;
+        }
+        if (request.getContentLengthLong() > maxRequestSize.toBytes()) {
+            throw new MultipartStream.SizeLimitExceededException("Request body exceeds " + maxRequestSize);
+        }
+        return new MultipartStream(request.getInputStream(), boundary, maxRequestSize.toBytes());
+    }
+
+    public long maxBytes(Kind kind) {
+        return kind == Kind.VIDEO ? maxVideoSize.toBytes() : maxImageBytes;
+    }
+
+    // Streams the part to target, which must not exist yet. The file is removed again if the
+    // part is too large, is not of the expected kind, or the body breaks off.
+    public StoredFile store(MultipartStream.Part part, Path target, Kind kind) throws IOException {
+        long limit = maxBytes(kind);
+        MessageDigest digest = sha256();
+        byte[] chunk = new byte[COPY_BUFFER];
+        InputStream in = part.getInputStream();
+        boolean stored = false;
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // Check the leading bytes before anything reaches the disk
+            int sniffed = in.readNBytes(chunk, 0, SNIFF_BYTES);
+            String contentType = sniff(chunk, sniffed, kind);
+            if (contentType == null) {
+                throw new IllegalArgumentException(kind == Kind.VIDEO
+                        ? "Video must be an MP4 or QuickTime file" : "Image must be a JPEG, PNG, GIF or WebP file");
+            }
+
+            long size = 0;
+            int count = sniffed;
+            while (count > 0) {
+                size += count;
+                if (size > limit) {
+                    throw new MultipartStream.SizeLimitExceededException(
+                            "File '" + part.getName() + "' exceeds " + limit + " bytes");
+                }
+                digest.update(chunk, 0, count);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                count = in.read(chunk);
+            }
+            stored = true;
+            return new StoredFile(target, size, HexFormat.of().formatHex(digest.digest()), contentType);
+        } finally {
+            if (!stored) {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    // Content type from magic numbers, or null if the bytes aren't an accepted format
+    private static String sniff(byte[] head, int length, Kind kind) {
+        if (kind == Kind.VIDEO) {
+            if (length >= 12 && matches(head, 4, "ftyp")) {
+                return matches(head, 8, "qt  ") ? "video/quicktime" : "video/mp4";
+            }
+            return null;
+        }
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (length >= 8 && (head[0] & 0xFF) == 0x89 && matches(head, 1, "PNG\r\n")) {
+            return "image/png";
+        }
+        if (length >= 6 && (matches(head, 0, "GIF87a") || matches(head, 0, "GIF89a"))) {
+            return "image/gif";
+        }
+        if (length >= 12 && matches(head, 0, "RIFF") && matches(head, 8, "WEBP")) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] bytes, int offset, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[offset + i] != (byte) ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static final class StoredFile {
+        private final Path path;
+        private final long size;
+        private final String sha256;
+        private final String contentType;
+
+        private StoredFile(Path path, long size, String sha256, String contentType) {
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+            this.contentType = contentType;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        // Hex SHA-256 of the stored bytes
+        public String getSha256() {
+            return sha256;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        // File extension matching the sniffed content type
+        public String getExtension() {
+            return switch (contentType) {
+                case "image/jpeg" -> ".jpg";
+                case "image/png" -> ".png";
+                case "image/gif" -> ".gif";
+                case "image/webp" -> ".webp";
+                case "video/quicktime" -> ".mov";
+                default -> ".mp4";
+            };
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Publishes the source unchanged as every rendition. Used for tests and for hosts without ffmpeg.
+@Component
+@ConditionalOnProperty(name = "media.transcoder", havingValue = "passthrough")
+public class PassThroughTranscoder implements Transcoder {
+
+    @Override
+    public void transcode(Path source, Path target, RenditionProfile profile) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingJob;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingStatus;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.ProcessingJobRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.MediaFiles;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.Mp4FastStart;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.Mp4Inspector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Durable post-upload processing. Each stage of a video is a row in processing_jobs; pollers
+// claim due rows with SKIP LOCKED, so several instances can share the queue, and hand them to
+// a fixed pool per stage, so a burst of uploads can't start more transcodes than configured.
+// A failed stage is retried with exponential backoff; a worker that dies mid-stage loses its
+// lease and the job is picked up again.
+@Service
+public class ProcessingPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingPipeline.class);
+
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    @Autowired
+    private ProcessingJobRepository jobRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private RenditionService renditionService;
+
+    @Autowired
+    private VideoPackagingService packagingService;
+
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${processing.prepare.workers:2}")
+    private int prepareWorkers;
+
+    @Value("${processing.renditions.workers:${media.transcode.workers:1}}")
+    private int renditionWorkers;
+
+    @Value("${processing.package.workers:1}")
+    private int packageWorkers;
+
+    @Value("${processing.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${processing.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    // Must outlast the slowest stage, or a healthy job would be claimed twice
+    @Value("${processing.lease-minutes:60}")
+    private long leaseMinutes;
+
+    private TransactionTemplate transactions;
+    private final Map<ProcessingJob.Stage, ExecutorService> executors = new EnumMap<>(ProcessingJob.Stage.class);
+    private final Map<ProcessingJob.Stage, Semaphore> slots = new EnumMap<>(ProcessingJob.Stage.class);
+
+    @PostConstruct
+    public void init() {
+        transactions = new TransactionTemplate(transactionManager);
+        start(ProcessingJob.Stage.PREPARE, prepareWorkers);
+        start(ProcessingJob.Stage.RENDITIONS, renditionWorkers);
+        start(ProcessingJob.Stage.PACKAGE, packageWorkers);
+    }
+
+    private void start(ProcessingJob.Stage stage, int workers) {
+        AtomicInteger threadCount = new AtomicInteger();
+        String prefix = "video-" + stage.name().toLowerCase() + "-";
+        executors.put(stage, Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        slots.put(stage, new Semaphore(workers));
+    }
+
+    // Queues processing of a freshly saved video. Joins the caller's transaction, so the
+    // video and its first job are committed together.
+    public void submit(Long videoId) {
+        jobRepository.save(new ProcessingJob(videoId, ProcessingJob.Stage.PREPARE, LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${processing.poll-interval-millis:1000}")
+    public void poll() {
+        for (ProcessingJob.Stage stage : ProcessingJob.Stage.values()) {
+            Semaphore free = slots.get(stage);
+            int available = free.availablePermits();
+            if (available == 0) {
+                continue;
+            }
+            List<ProcessingJob> claimed = claim(stage, available);
+            for (ProcessingJob job : claimed) {
+                free.acquireUninterruptibly();
+                executors.get(stage).submit(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        free.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private List<ProcessingJob> claim(ProcessingJob.Stage stage, int limit) {
+        return transactions.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<ProcessingJob> jobs = jobRepository.findClaimable(stage, ProcessingJob.Status.PENDING,
+                    ProcessingJob.Status.RUNNING, now, PageRequest.of(0, limit));
+            for (ProcessingJob job : jobs) {
+                job.setStatus(ProcessingJob.Status.RUNNING);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setLockedUntil(now.plusMinutes(leaseMinutes));
+                videoRepository.updateProcessingStatus(job.getVideoId(), ProcessingStatus.PROCESSING);
+            }
+            return jobRepository.saveAll(jobs);
+        });
+    }
+
+    private void run(ProcessingJob job) {
+        try {
+            switch (job.getStage()) {
+                case PREPARE -> prepare(job.getVideoId());
+                case RENDITIONS -> renditionService.generateRenditions(job.getVideoId());
+                case PACKAGE -> packagingService.packageVideo(job.getVideoId());
+            }
+        } catch (InterruptedException e) {
+            // Shutting down; hand the job back without counting the attempt
+            Thread.currentThread().interrupt();
+            release(job);
+            return;
+        } catch (Exception e) {
+            logger.error("{} failed for video {} (attempt {})", job.getStage(), job.getVideoId(), job.getAttempts(), e);
+            fail(job, e);
+            return;
+        }
+        complete(job);
+    }
+
+    // Moves a staged original into the blob store and records its stream facts
+    private void prepare(Long videoId) throws Exception {
+        Optional<Video> videoOpt = videoRepository.findById(videoId);
+        if (videoOpt.isEmpty()) {
+            return;
+        }
+        Video video = videoOpt.get();
+        if (video.getVideoBlob() == null && video.getStorageDir() != null && !storeOriginal(video)) {
+            return;
+        }
+        Path videoPath = mediaStore.resolve(video.getVideoUrl());
+
+        Mp4Inspector.Mp4Info info = Mp4Inspector.inspect(videoPath);
+        if (info != null) {
+            videoRepository.updateStreamInfo(videoId, info.getDurationSeconds(), info.getWidth(), info.getHeight(),
+                    info.getBitrateKbps(), info.getVideoCodec(), info.getMoovOffset());
+            streamDescriptors.invalidate(videoId);
+        }
+    }
+
+    // Hashes the staged upload, puts moov ahead of the media data and moves it into the blob
+    // store. This runs here rather than on the upload request because, for a phone recording
+    // with moov at the end, both the hash and the rewrite touch every byte. The staged file
+    // belongs to this video alone, so rewriting it can't affect anything else, and a blob is
+    // never rewritten once stored. Returns false if the video went away meanwhile.
+    private boolean storeOriginal(Video video) throws IOException {
+        Path staged = mediaStore.resolve(video.getVideoUrl());
+        String sha256 = video.getStagedSha256() != null ? video.getStagedSha256() : BlobStore.sha256(staged);
+
+        // A repeat of content already stored skips the rewrite and keeps the staged copy until
+        // the video points at the blob, so a failed attach can be retried
+        String videoUrl = blobStore.retain(sha256);
+        boolean stored = videoUrl == null;
+        if (stored) {
+            Mp4FastStart.apply(staged);
+            videoUrl = blobStore.store(sha256, staged, ".mp4", "video/mp4");
+        }
+
+        int attached;
+        try {
+            attached = videoRepository.attachVideoBlob(video.getId(), videoUrl, sha256);
+        } catch (RuntimeException e) {
+            if (stored) {
+                // Put the bytes back where a retry expects them before dropping the reference
+                MediaFiles.copy(mediaStore.resolve(videoUrl), staged);
+            }
+            blobStore.release(sha256);
+            throw e;
+        }
+        if (attached == 0) {
+            blobStore.release(sha256);
+            return false;
+        }
+        if (!stored) {
+            Files.deleteIfExists(staged);
+        }
+        video.setVideoUrl(videoUrl);
+        video.setVideoBlob(sha256);
+        // Anything cached still points at the staged file
+        streamDescriptors.invalidate(video.getId());
+        return true;
+    }
+
+    private void complete(ProcessingJob job) {
+        transactions.executeWithoutResult(status -> {
+            jobRepository.deleteById(job.getId());
+            ProcessingJob.Stage next = job.getStage().next();
+            if (next != null) {
+                jobRepository.save(new ProcessingJob(job.getVideoId(), next, LocalDateTime.now()));
+            } else {
+                videoRepository.updateProcessingStatus(job.getVideoId(), ProcessingStatus.READY);
+            }
+        });
+    }
+
+    private void fail(ProcessingJob job, Exception error) {
+        String message = String.valueOf(error.getMessage());
+        transactions.executeWithoutResult(status -> {
+            job.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+            job.setLockedUntil(null);
+            if (job.getAttempts() >= maxAttempts) {
+                job.setStatus(ProcessingJob.Status.FAILED);
+                videoRepository.updateProcessingStatus(job.getVideoId(), ProcessingStatus.FAILED);
+            } else {
+                long backoff = Math.min(MAX_BACKOFF_SECONDS, retryBaseSeconds << Math.min(20, job.getAttempts() - 1));
+                job.setStatus(ProcessingJob.Status.PENDING);
+                job.setRunAt(LocalDateTime.now().plusSeconds(backoff));
+            }
+            jobRepository.save(job);
+        });
+    }
+
+    private void release(ProcessingJob job) {
+        try {
+            transactions.executeWithoutResult(status -> {
+                job.setStatus(ProcessingJob.Status.PENDING);
+                job.setAttempts(Math.max(0, job.getAttempts() - 1));
+                job.setLockedUntil(null);
+                jobRepository.save(job);
+            });
+        } catch (RuntimeException e) {
+            // The lease runs out and the job is claimed again anyway
+            logger.warn("Could not release job {}", job.getId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdownNow);
+    }
+}
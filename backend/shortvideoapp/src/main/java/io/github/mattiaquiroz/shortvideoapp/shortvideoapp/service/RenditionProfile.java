@@ -0,0 +1,35 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+// Rungs of the adaptive bitrate ladder. Bitrates are targets for H.264 video and AAC audio.
+public enum RenditionProfile {
+    P240("240p", 240, 400, 64),
+    P480("480p", 480, 1000, 96),
+    P720("720p", 720, 2500, 128);
+
+    private final String name;
+    private final int height;
+    private final int videoKbps;
+    private final int audioKbps;
+
+    RenditionProfile(String name, int height, int videoKbps, int audioKbps) {
+        this.name = name;
+        this.height = height;
+        this.videoKbps = videoKbps;
+        this.audioKbps = audioKbps;
+    }
+
+    public String getName() { return name; }
+    public int getHeight() { return height; }
+    public int getVideoKbps() { return videoKbps; }
+    public int getAudioKbps() { return audioKbps; }
+    public int getTotalKbps() { return videoKbps + audioKbps; }
+
+    public static RenditionProfile fromName(String name) {
+        for (RenditionProfile profile : values()) {
+            if (profile.name.equalsIgnoreCase(name.trim())) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rendition profile: " + name);
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.VideoRendition;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRenditionRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+
+// Generates the rendition ladder for uploaded videos and picks a rendition for a client.
+@Service
+public class RenditionService {
+
+    public static final String RENDITIONS_DIR = "renditions";
+
+    private static final Logger logger = LoggerFactory.getLogger(RenditionService.class);
+
+    // Share of the reported downlink we are willing to spend on video
+    private static final double DOWNLINK_HEADROOM = 0.8;
+
+    @Autowired
+    private Transcoder transcoder;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoRenditionRepository renditionRepository;
+
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Value("${media.renditions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.renditions.profiles:240p,480p,720p}")
+    private List<String> profileNames;
+
+    private List<RenditionProfile> profiles;
+
+    @PostConstruct
+    public void init() {
+        profiles = profileNames.stream().map(RenditionProfile::fromName).toList();
+    }
+
+    // Runs as the RENDITIONS stage of ProcessingPipeline
+    public void generateRenditions(Long videoId) throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        Optional<Video> videoOpt = videoRepository.findById(videoId);
+        if (videoOpt.isEmpty()) {
+            return;
+        }
+        Video video = videoOpt.get();
+
+        String videoUrl = video.getVideoUrl();
+        Path source = mediaStore.resolve(videoUrl);
+        if (!Files.isRegularFile(source)) {
+            logger.warn("Cannot transcode video {}: source {} is missing", videoId, source);
+            return;
+        }
+
+        String mediaDir = VideoPackagingService.mediaDirectory(video);
+        Path renditionsDir = mediaStore.resolve(mediaDir).resolve(RENDITIONS_DIR);
+        Files.createDirectories(renditionsDir);
+        String renditionsUrl = mediaDir + "/" + RENDITIONS_DIR + "/";
+
+        // Re-running replaces the whole ladder
+        renditionRepository.deleteByVideoId(videoId);
+
+        for (RenditionProfile profile : profiles) {
+            String fileName = profile.getName() + ".mp4";
+            Path target = renditionsDir.resolve(fileName);
+            Path partial = renditionsDir.resolve("." + profile.getName() + ".tmp.mp4");
+            try {
+                transcoder.transcode(source, partial, profile);
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+
+            renditionRepository.save(new VideoRendition(video, profile.getName(), profile.getHeight(),
+                    profile.getTotalKbps(), renditionsUrl + fileName, Files.size(target)));
+        }
+        streamDescriptors.invalidate(videoId);
+    }
+
+    public List<VideoRendition> getRenditions(Long videoId) {
+        return renditionRepository.findByVideoIdOrderByHeightAsc(videoId);
+    }
+
+    // Picks one of the given renditions (lowest first) from an explicit quality name or from
+    // the Save-Data, Downlink and ECT client hints. Returns null when the original upload
+    // should be served.
+    public StreamDescriptor.Rendition select(List<StreamDescriptor.Rendition> renditions, String quality,
+                                             String saveData, String downlink, String ect) {
+        boolean wantsLowest = "on".equalsIgnoreCase(saveData);
+        Double budgetKbps = parseBudget(downlink, ect);
+        if (quality == null && !wantsLowest && budgetKbps == null) {
+            return null;
+        }
+        if (renditions.isEmpty()) {
+            return null;
+        }
+        if (quality != null) {
+            return renditions.stream()
+                    .filter(r -> r.getName().equalsIgnoreCase(quality))
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (wantsLowest) {
+            return renditions.get(0);
+        }
+
+        // Highest rung that fits the budget, or the lowest one if none does
+        StreamDescriptor.Rendition best = renditions.get(0);
+        for (StreamDescriptor.Rendition rendition : renditions) {
+            if (rendition.getBitrateKbps() <= budgetKbps) {
+                best = rendition;
+            }
+        }
+        return best;
+    }
+
+    private Double parseBudget(String downlink, String ect) {
+        if (downlink != null) {
+            try {
+                // Downlink is reported in megabits per second
+                return Double.parseDouble(downlink.trim()) * 1000 * DOWNLINK_HEADROOM;
+            } catch (NumberFormatException ignored) {
+                // Fall through to the effective connection type
+            }
+        }
+        if (ect == null) {
+            return null;
+        }
+        switch (ect.trim().toLowerCase()) {
+            case "slow-2g":
+                return 50.0;
+            case "2g":
+                return 250.0;
+            case "3g":
+                return 1200.0;
+            default:
+                return null;
+        }
+    }
+}
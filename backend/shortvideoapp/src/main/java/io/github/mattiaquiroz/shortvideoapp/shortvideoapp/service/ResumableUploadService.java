@@ -0,0 +1,213 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Resumable, chunked video uploads. A session preallocates nothing but opens the video's
+// final file; each chunk is written at its own offset with transferFrom straight from the
+// request body, so chunks can arrive in parallel or be retried and the bytes are never
+// copied a second time. Completing the session hands the file to VideoIngestService.
+@Service
+public class ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private VideoIngestService ingestService;
+
+    @Value("${upload.resumable.max-bytes:524288000}")
+    private long maxBytes;
+
+    // Idle time after which an unfinished upload and its partial file are discarded
+    @Value("${upload.resumable.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${upload.resumable.max-sessions-per-user:5}")
+    private int maxSessionsPerUser;
+
+    private final ConcurrentHashMap<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public UploadSession create(Long userId, long size, String description, boolean isPublic) throws IOException {
+        if (size <= 0 || size > maxBytes) {
+            throw new IllegalArgumentException("Upload size must be between 1 and " + maxBytes + " bytes");
+        }
+        long open = sessions.values().stream().filter(s -> s.getUserId().equals(userId)).count();
+        if (open >= maxSessionsPerUser) {
+            throw new IllegalStateException("Too many unfinished uploads");
+        }
+
+        String key = ingestService.newVideoKey();
+        FileChannel channel = FileChannel.open(ingestService.videoFile(key),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            // Give the file its final length up front (sparse where the filesystem allows).
+            // transferFrom writes nothing at a position past the end of the file, so chunks
+            // arriving out of order or in parallel need the whole range to exist.
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        } catch (IOException e) {
+            channel.close();
+            ingestService.discard(key);
+            throw e;
+        }
+        UploadSession session = new UploadSession(newSessionId(), userId, key, size, description,
+                isPublic, channel, nextExpiry());
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    // Returns null if there is no such session or it belongs to someone else
+    public UploadSession get(String uploadId, Long userId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.getUserId().equals(userId)) {
+            return null;
+        }
+        return session;
+    }
+
+    // Writes up to length bytes of body at offset. A body cut short keeps whatever arrived,
+    // so the client only resends the missing part. Returns the number of bytes written.
+    public long writeChunk(UploadSession session, long offset, long length, InputStream body) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > session.getSize()) {
+            throw new IllegalArgumentException("Chunk lies outside the upload");
+        }
+
+        session.getChannelLock().readLock().lock();
+        try {
+            if (session.isClosed()) {
+                throw new IllegalStateException("Upload is no longer open");
+            }
+            ReadableByteChannel source = Channels.newChannel(body);
+            FileChannel channel = session.getChannel();
+            long written = 0;
+            try {
+                while (written < length) {
+                    long count = channel.transferFrom(source, offset + written, length - written);
+                    if (count <= 0) {
+                        break;
+                    }
+                    written += count;
+                    // Record progress as it lands so a dropped connection loses nothing
+                    session.markReceived(offset + written - count, offset + written);
+                }
+            } finally {
+                session.setExpiresAt(nextExpiry());
+            }
+            return written;
+        } finally {
+            session.getChannelLock().readLock().unlock();
+        }
+    }
+
+    // Finalises a fully received upload into a Video. The thumbnail is optional.
+    public Video complete(UploadSession session, User user, MultipartFile thumbnail) throws IOException {
+        if (!session.isComplete()) {
+            throw new IllegalStateException("Upload is missing bytes");
+        }
+
+        session.getChannelLock().writeLock().lock();
+        try {
+            if (session.isClosed()) {
+                throw new IllegalStateException("Upload is no longer open");
+            }
+            session.setClosed(true);
+            session.getChannel().force(true);
+            session.getChannel().close();
+        } finally {
+            session.getChannelLock().writeLock().unlock();
+        }
+        sessions.remove(session.getId());
+
+        try {
+            if (thumbnail != null && !thumbnail.isEmpty()) {
+                thumbnail.transferTo(ingestService.thumbnailFile(session.getVideoKey()));
+            }
+            // Chunks arrive out of order, so they can't be hashed as they are written; the
+            // processing pipeline hashes the assembled file in one sequential read
+            return ingestService.register(user, session.getVideoKey(), session.getDescription(),
+                    session.isPublic(), null, null);
+        } catch (IOException | RuntimeException e) {
+            ingestService.discard(session.getVideoKey());
+            throw e;
+        }
+    }
+
+    public void abort(UploadSession session) {
+        if (sessions.remove(session.getId(), session)) {
+            discard(session);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${upload.resumable.cleanup-interval-millis:60000}")
+    public void expireSessions() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, UploadSession>> it = sessions.entrySet().iterator(); it.hasNext(); ) {
+            UploadSession session = it.next().getValue();
+            if (session.getExpiresAt() < now) {
+                it.remove();
+                logger.info("Discarding expired upload {} ({} of {} bytes received)",
+                        session.getId(), session.getReceivedBytes(), session.getSize());
+                discard(session);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Partial files are useless without their session state, which lives only in memory
+        sessions.values().forEach(this::discard);
+        sessions.clear();
+    }
+
+    private void discard(UploadSession session) {
+        session.getChannelLock().writeLock().lock();
+        try {
+            if (session.isClosed()) {
+                return;
+            }
+            session.setClosed(true);
+            session.getChannel().close();
+        } catch (IOException e) {
+            logger.warn("Failed to close upload {}", session.getId(), e);
+        } finally {
+            session.getChannelLock().writeLock().unlock();
+        }
+        ingestService.discard(session.getVideoKey());
+    }
+
+    private long nextExpiry() {
+        return System.currentTimeMillis() + ttlMinutes * 60_000;
+    }
+
+    private String newSessionId() {
+        byte[] bytes = new byte[18];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Everything the streaming endpoints need to authorize and serve a video, resolved once:
+// who may see it, where its files are and their length, type and validators.
+public final class StreamDescriptor {
+
+    private final Long videoId;
+    private final Long ownerId;
+    private final boolean isPublic;
+    private final Path mediaDirectory;
+    private final boolean cold;
+    private final String packageVersion;
+    private final StreamFile original;
+    private final List<Rendition> renditions;
+    private final Map<String, StreamFile> renditionFiles;
+    private final long loadedAt = System.nanoTime();
+
+    StreamDescriptor(Long videoId, Long ownerId, boolean isPublic, Path mediaDirectory, boolean cold, String packageVersion,
+                     StreamFile original, List<Rendition> renditions, Map<String, StreamFile> renditionFiles) {
+        this.videoId = videoId;
+        this.ownerId = ownerId;
+        this.isPublic = isPublic;
+        this.mediaDirectory = mediaDirectory;
+        this.cold = cold;
+        this.packageVersion = packageVersion;
+        this.original = original;
+        this.renditions = List.copyOf(renditions);
+        this.renditionFiles = Map.copyOf(renditionFiles);
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public boolean isPublic() {
+        return isPublic;
+    }
+
+    public boolean isVisibleTo(Long userId) {
+        return isPublic || ownerId.equals(userId);
+    }
+
+    // Where the video's renditions and stream packages live
+    public Path getMediaDirectory() {
+        return mediaDirectory;
+    }
+
+    // Files were moved to the cold tier (see MediaTieringService)
+    public boolean isCold() {
+        return cold;
+    }
+
+    public String getPackageVersion() {
+        return packageVersion;
+    }
+
+    // Null if the uploaded file is missing
+    public StreamFile getOriginal() {
+        return original;
+    }
+
+    // Ordered by height, lowest first
+    public List<Rendition> getRenditions() {
+        return renditions;
+    }
+
+    public StreamFile getRenditionFile(String name) {
+        return renditionFiles.get(name);
+    }
+
+    long getLoadedAt() {
+        return loadedAt;
+    }
+
+    // A rung of the rendition ladder; its file is looked up by name
+    public static final class Rendition {
+        private final String name;
+        private final Integer height;
+        private final Integer bitrateKbps;
+
+        Rendition(String name, Integer height, Integer bitrateKbps) {
+            this.name = name;
+            this.height = height;
+            this.bitrateKbps = bitrateKbps;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Integer getHeight() {
+            return height;
+        }
+
+        public Integer getBitrateKbps() {
+            return bitrateKbps;
+        }
+    }
+
+    public static final class StreamFile {
+        private final Path path;
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+        private final String contentType;
+        private final Integer bitrateKbps;
+
+        StreamFile(Path path, long length, long lastModified, String etag, String contentType, Integer bitrateKbps) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.bitrateKbps = bitrateKbps;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        // Null if unknown
+        public Integer getBitrateKbps() {
+            return bitrateKbps;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.MediaTier;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.VideoRendition;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRenditionRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.FileValidators;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Caches a StreamDescriptor per video so range requests need no database round trip and no
+// stat/probe calls. Anything that changes a video's visibility, files or package must call
+// invalidate(), which also drops the video's first bytes and pooled file channels.
+@Component
+public class StreamDescriptorCache {
+
+    private static final int GENERATION_SLOTS = 1024;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoRenditionRepository renditionRepository;
+
+    @Autowired
+    private FirstBytesCache firstBytesCache;
+
+    @Autowired
+    private FileChannelPool channelPool;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Value("${stream.descriptor.max-entries:10000}")
+    private int maxEntries;
+
+    // Safety net for changes made outside the application, e.g. files replaced by hand
+    @Value("${stream.descriptor.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final LinkedHashMap<Long, StreamDescriptor> descriptors = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, StreamDescriptor> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Bumped by invalidate(), so a load that overlapped it isn't cached. Kept per slot of
+    // video ids rather than per id to stay bounded; a shared slot only costs a load that
+    // goes uncached. Guarded by descriptors.
+    private final long[] generations = new long[GENERATION_SLOTS];
+
+    // Returns null if the video does not exist
+    public StreamDescriptor get(Long videoId) throws IOException {
+        StreamDescriptor descriptor;
+        long generation;
+        synchronized (descriptors) {
+            descriptor = descriptors.get(videoId);
+            generation = generations[slot(videoId)];
+        }
+        if (descriptor != null
+                && System.nanoTime() - descriptor.getLoadedAt() < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            return descriptor;
+        }
+
+        descriptor = load(videoId);
+        if (descriptor != null) {
+            synchronized (descriptors) {
+                // Invalidated while loading: what was read may already be stale, so serve it
+                // to this request only
+                if (generations[slot(videoId)] == generation) {
+                    descriptors.put(videoId, descriptor);
+                }
+            }
+        }
+        return descriptor;
+    }
+
+    public void invalidate(Long videoId) {
+        StreamDescriptor removed;
+        synchronized (descriptors) {
+            generations[slot(videoId)]++;
+            removed = descriptors.remove(videoId);
+        }
+        firstBytesCache.invalidate(videoId);
+        if (removed != null) {
+            if (removed.getOriginal() != null) {
+                channelPool.invalidate(removed.getOriginal().getPath());
+            }
+            for (StreamDescriptor.Rendition rendition : removed.getRenditions()) {
+                StreamDescriptor.StreamFile file = removed.getRenditionFile(rendition.getName());
+                if (file != null) {
+                    channelPool.invalidate(file.getPath());
+                }
+            }
+        }
+    }
+
+    private StreamDescriptor load(Long videoId) throws IOException {
+        Optional<Video> videoOpt = videoRepository.findById(videoId);
+        if (videoOpt.isEmpty()) {
+            return null;
+        }
+        Video video = videoOpt.get();
+        Path videoPath = mediaStore.resolve(video.getVideoUrl());
+
+        // Copied out of the entities, so a cached descriptor holds no managed state
+        List<StreamDescriptor.Rendition> renditions = new ArrayList<>();
+        Map<String, StreamDescriptor.StreamFile> renditionFiles = new HashMap<>();
+        for (VideoRendition rendition : renditionRepository.findByVideoIdOrderByHeightAsc(videoId)) {
+            renditions.add(new StreamDescriptor.Rendition(rendition.getName(), rendition.getHeight(),
+                    rendition.getBitrateKbps()));
+            StreamDescriptor.StreamFile file = describe(mediaStore.resolve(rendition.getFileUrl()), rendition.getBitrateKbps());
+            if (file != null) {
+                renditionFiles.put(rendition.getName(), file);
+            }
+        }
+
+        return new StreamDescriptor(videoId, video.getUser().getId(), Boolean.TRUE.equals(video.getIsPublic()),
+                mediaStore.resolve(VideoPackagingService.mediaDirectory(video)), video.getMediaTier() == MediaTier.COLD,
+                video.getPackageVersion(), describe(videoPath, video.getBitrateKbps()), renditions, renditionFiles);
+    }
+
+    private static int slot(Long videoId) {
+        return (int) Math.floorMod(videoId, (long) GENERATION_SLOTS);
+    }
+
+    private StreamDescriptor.StreamFile describe(Path path, Integer bitrateKbps) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+
+        String contentType = Files.probeContentType(path);
+        if (contentType == null) {
+            contentType = "video/mp4"; // Default to MP4
+        }
+        return new StreamDescriptor.StreamFile(path, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                FileValidators.strongETag(attributes), contentType, bitrateKbps);
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Quality-of-experience metrics for video streaming. Every meter is registered up front, so
+// recording is a plain counter/histogram update with no tag building or registry lookups.
+@Component
+public class StreamingMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${stream.metrics.hot-videos:20}")
+    private int hotVideos;
+
+    private Timer timeToFirstByte;
+    private DistributionSummary bytesServed;
+    private DistributionSummary rangeSize;
+    private Counter status200;
+    private Counter status206;
+    private Counter status304;
+    private Counter status416;
+    private Counter statusClientError;
+    private Counter statusServerError;
+    private Counter aborted;
+    private Counter sendfileScheduled;
+    private MultiGauge hotVideoRequests;
+
+    // Requests per video since the last hot-video refresh
+    private final ConcurrentHashMap<Long, LongAdder> requestsByVideo = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        timeToFirstByte = Timer.builder("stream.ttfb")
+                .description("Time from request arrival until the response body starts")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // Responses written through sendfile are not included; see sendfileScheduled
+        bytesServed = DistributionSummary.builder("stream.bytes.served")
+                .description("Body bytes delivered per response, sendfile responses excluded")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        rangeSize = DistributionSummary.builder("stream.range.size")
+                .description("Bytes requested per range response")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        status200 = statusCounter("200");
+        status206 = statusCounter("206");
+        status304 = statusCounter("304");
+        status416 = statusCounter("416");
+        statusClientError = statusCounter("4xx");
+        statusServerError = statusCounter("5xx");
+
+        aborted = Counter.builder("stream.aborted")
+                .description("Responses cut short because the client went away")
+                .register(meterRegistry);
+        sendfileScheduled = Counter.builder("stream.bytes.sendfile")
+                .description("Body bytes handed to the connector's sendfile; delivery is not confirmed")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        hotVideoRequests = MultiGauge.builder("stream.video.requests")
+                .description("Requests per video over the last interval, busiest videos only")
+                .register(meterRegistry);
+    }
+
+    public void recordTimeToFirstByte(long startNanos) {
+        timeToFirstByte.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBytesServed(long bytes) {
+        bytesServed.record(bytes);
+    }
+
+    public void recordSendfileScheduled(long bytes) {
+        sendfileScheduled.increment(bytes);
+    }
+
+    public void recordRangeSize(long bytes) {
+        rangeSize.record(bytes);
+    }
+
+    public void recordAborted() {
+        aborted.increment();
+    }
+
+    public void recordStatus(int status) {
+        switch (status) {
+            case 200 -> status200.increment();
+            case 206 -> status206.increment();
+            case 304 -> status304.increment();
+            case 416 -> status416.increment();
+            default -> {
+                if (status >= 500) {
+                    statusServerError.increment();
+                } else if (status >= 400) {
+                    statusClientError.increment();
+                }
+            }
+        }
+    }
+
+    public void recordRequest(Long videoId) {
+        requestsByVideo.computeIfAbsent(videoId, id -> new LongAdder()).increment();
+    }
+
+    // Publishes the busiest videos of the last interval and starts a new one. Adders are
+    // reused across intervals; only those of videos with no requests in this one are dropped.
+    @Scheduled(fixedDelayString = "${stream.metrics.hot-interval-millis:60000}")
+    public void refreshHotVideos() {
+        List<Map.Entry<Long, Long>> counts = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : requestsByVideo.entrySet()) {
+            long requests = entry.getValue().sumThenReset();
+            if (requests == 0) {
+                requestsByVideo.remove(entry.getKey(), entry.getValue());
+            } else {
+                counts.add(Map.entry(entry.getKey(), requests));
+            }
+        }
+
+        counts.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : counts.subList(0, Math.min(hotVideos, counts.size()))) {
+            rows.add(MultiGauge.Row.of(Tags.of("videoId", entry.getKey().toString()), entry.getValue()));
+        }
+        hotVideoRequests.register(rows, true);
+    }
+
+    private Counter statusCounter(String status) {
+        return Counter.builder("stream.responses")
+                .description("Video stream responses by status")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.ByteRanges;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+
+@Service
+public class StreamingService {
+
+    // Request attributes understood by Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Small enough that a write to a disconnected client fails soon after it goes away
+    private static final long TRANSFER_CHUNK = 256 * 1024;
+
+    private static final String MULTIPART_BOUNDARY = "SVA_BYTERANGES_" + Long.toHexString(new SecureRandom().nextLong());
+    private static final byte[] MULTIPART_END = ("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private FileChannelPool channelPool;
+
+    @Value("${stream.sendfile.enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${stream.sendfile.min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    // Largest response to an open-ended "bytes=N-" request; 0 serves the whole remainder
+    @Value("${stream.range.max-bytes:4194304}")
+    private long maxRangeBytes;
+
+    // Size open-ended responses to this many seconds of playback when the bitrate is known
+    @Value("${stream.range.adaptive-enabled:true}")
+    private boolean adaptiveRanges;
+
+    @Value("${stream.range.adaptive-seconds:8}")
+    private long adaptiveSeconds;
+
+    @Value("${stream.range.min-bytes:524288}")
+    private long minRangeBytes;
+
+    // Caps an open-ended range so a viewer who swipes away after a few seconds doesn't pull
+    // the rest of the file. The player simply asks for the next range when it gets there.
+    public ByteRanges limitOpenEnded(ByteRanges ranges, Integer bitrateKbps) {
+        if (ranges == null || !ranges.isOpenEnded() || maxRangeBytes <= 0) {
+            return ranges;
+        }
+        long limit = maxRangeBytes;
+        if (adaptiveRanges && bitrateKbps != null && bitrateKbps > 0) {
+            // kbit/s to bytes: * 1000 / 8
+            long playback = bitrateKbps * 125L * adaptiveSeconds;
+            limit = Math.max(Math.min(minRangeBytes, maxRangeBytes), Math.min(maxRangeBytes, playback));
+        }
+        return ranges.truncate(limit);
+    }
+
+    // Writes bytes [start, start + length) of the file as the response body. Status and
+    // headers (including Content-Length) must already be set by the caller.
+    public void writeRegion(Path path, long start, long length,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeRegion(path, start, length, request, response, null);
+    }
+
+    // As above, copying through out (if given) when sendfile is not used. Returns true if
+    // the region was handed to sendfile, in which case nothing passes through out.
+    public boolean writeRegion(Path path, long start, long length, HttpServletRequest request,
+                               HttpServletResponse response, OutputStream out) throws IOException {
+        if (length <= 0 || "HEAD".equalsIgnoreCase(request.getMethod())) {
+            return false;
+        }
+
+        // Let the connector hand the region to the kernel once the handler returns,
+        // so the bytes go from the page cache to the socket without touching the heap
+        if (sendfileEnabled && length >= sendfileMinBytes
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().normalize().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return true;
+        }
+
+        transfer(path, start, length, out != null ? out : response.getOutputStream());
+        return false;
+    }
+
+    // Writes several ranges of the file as a multipart/byteranges body, setting the
+    // Content-Type and exact Content-Length. The status must already be 206. Returns the
+    // number of file bytes written.
+    public long writeMultipart(Path path, ByteRanges ranges, long fileLength, String contentType,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long total = MULTIPART_END.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            String header = (i == 0 ? "" : "\r\n") + "--" + MULTIPART_BOUNDARY + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + ranges.start(i) + "-" + ranges.end(i) + "/" + fileLength + "\r\n\r\n";
+            partHeaders[i] = header.getBytes(StandardCharsets.US_ASCII);
+            total += partHeaders[i].length + ranges.length(i);
+        }
+
+        response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        response.setContentLengthLong(total);
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return 0;
+        }
+
+        OutputStream out = response.getOutputStream();
+        long written = 0;
+        try (FileChannelPool.Lease lease = channelPool.acquire(path)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders[i]);
+                written += transfer(lease, ranges.start(i), ranges.length(i), out);
+            }
+        }
+        out.write(MULTIPART_END);
+        return written;
+    }
+
+    // Copies a file region to the given stream with positional transferTo on a pooled
+    // channel, returning the number of bytes actually written.
+    public long transfer(Path path, long start, long length, OutputStream out) throws IOException {
+        try (FileChannelPool.Lease lease = channelPool.acquire(path)) {
+            return transfer(lease, start, length, out);
+        }
+    }
+
+    private long transfer(FileChannelPool.Lease lease, long start, long length, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long sent = lease.channel().transferTo(position, Math.min(remaining, TRANSFER_CHUNK), target);
+            if (sent <= 0) {
+                // File was truncated underneath us
+                break;
+            }
+            position += sent;
+            remaining -= sent;
+            // Surfaces a broken connection now rather than when the buffers fill up
+            out.flush();
+        }
+        return length - remaining;
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Produces one rendition of a source video. Implementations are selected with media.transcoder.
+public interface Transcoder {
+
+    void transcode(Path source, Path target, RenditionProfile profile) throws IOException, InterruptedException;
+}
@@ -0,0 +1,148 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.VideoViewerSketch;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoViewerSketchRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util.HyperLogLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Estimates distinct viewers per video with HyperLogLog. Views go into in-memory sketches
+// that only cover the current interval; the flush merges them into the persisted sketch and
+// refreshes videos.unique_viewers, so recording a view never touches the database. A flush
+// locks the rows it merges into, so instances flushing the same video don't lose each other's
+// viewers, and writes them back in batches: a handful of round trips however many videos.
+@Service
+public class UniqueViewerCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueViewerCounter.class);
+
+    private static final String UPDATE_SQL = "UPDATE videos SET unique_viewers = ? WHERE id = ?";
+
+    // Creates missing sketches empty, so every row to merge into exists and can be locked
+    private static final String INSERT_SKETCH_SQL = "INSERT INTO video_viewer_sketches (video_id, registers, updated_at) "
+            + "VALUES (?, ?, now()) ON CONFLICT (video_id) DO NOTHING";
+
+    private static final String UPDATE_SKETCH_SQL = "UPDATE video_viewer_sketches SET registers = ?, updated_at = now() "
+            + "WHERE video_id = ?";
+
+    // Videos merged per transaction, which bounds how many rows one flush holds locked
+    private static final int FLUSH_CHUNK = 500;
+
+    @Autowired
+    private VideoViewerSketchRepository sketchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactions;
+
+    private final ConcurrentHashMap<Long, PendingSketch> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactions = new TransactionTemplate(transactionManager);
+    }
+
+    // Viewer keys are "u:<userId>" for signed-in users and "a:<address>" otherwise
+    public void record(Long videoId, String viewerKey) {
+        update(videoId, hll -> hll.offer(viewerKey));
+    }
+
+    public void discard(Long videoId) {
+        pending.remove(videoId);
+        sketchRepository.deleteByVideoId(videoId);
+    }
+
+    @Scheduled(fixedDelayString = "${views.unique.flush-interval-millis:60000}")
+    public void flush() {
+        TreeMap<Long, HyperLogLog> drained = new TreeMap<>();
+        for (Long videoId : new ArrayList<>(pending.keySet())) {
+            PendingSketch sketch = pending.remove(videoId);
+            if (sketch == null) {
+                continue;
+            }
+            synchronized (sketch) {
+                sketch.retired = true;
+            }
+            drained.put(videoId, sketch.hll);
+        }
+
+        List<Long> videoIds = new ArrayList<>(drained.keySet());
+        for (int from = 0; from < videoIds.size(); from += FLUSH_CHUNK) {
+            List<Long> chunk = videoIds.subList(from, Math.min(videoIds.size(), from + FLUSH_CHUNK));
+            try {
+                transactions.executeWithoutResult(status -> persist(chunk, drained));
+            } catch (RuntimeException e) {
+                // Fold the views back in so the next flush retries them
+                for (Long videoId : chunk) {
+                    HyperLogLog hll = drained.get(videoId);
+                    update(videoId, pendingHll -> pendingHll.merge(hll));
+                }
+                logger.warn("Failed to persist unique viewers for {} videos", chunk.size(), e);
+            }
+        }
+    }
+
+    // Merges the interval's sketches into the stored ones, ids in ascending order
+    private void persist(List<Long> videoIds, Map<Long, HyperLogLog> drained) {
+        byte[] empty = new HyperLogLog().toBytes();
+        List<Object[]> inserts = new ArrayList<>(videoIds.size());
+        for (Long videoId : videoIds) {
+            inserts.add(new Object[] {videoId, empty});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SKETCH_SQL, inserts);
+
+        List<Object[]> sketches = new ArrayList<>(videoIds.size());
+        List<Object[]> estimates = new ArrayList<>(videoIds.size());
+        for (VideoViewerSketch stored : sketchRepository.lockAll(videoIds)) {
+            HyperLogLog merged = new HyperLogLog(stored.getRegisters());
+            merged.merge(drained.get(stored.getVideoId()));
+            sketches.add(new Object[] {merged.toBytes(), stored.getVideoId()});
+            estimates.add(new Object[] {merged.estimate(), stored.getVideoId()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SKETCH_SQL, sketches);
+        jdbcTemplate.batchUpdate(UPDATE_SQL, estimates);
+    }
+
+    private void update(Long videoId, Consumer<HyperLogLog> action) {
+        while (true) {
+            PendingSketch sketch = pending.computeIfAbsent(videoId, id -> new PendingSketch());
+            synchronized (sketch) {
+                // A retired sketch is being flushed; start a fresh one
+                if (!sketch.retired) {
+                    action.accept(sketch.hll);
+                    return;
+                }
+            }
+            pending.remove(videoId, sketch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static final class PendingSketch {
+        private final HyperLogLog hll = new HyperLogLog();
+        private boolean retired;
+    }
+}
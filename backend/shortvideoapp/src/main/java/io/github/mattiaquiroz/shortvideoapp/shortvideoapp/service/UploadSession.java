@@ -0,0 +1,125 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// State of one resumable upload. Chunks may arrive in any order and in parallel, so the
+// received bytes are tracked as merged [start, end) intervals.
+public class UploadSession {
+
+    private final String id;
+    private final Long userId;
+    private final String videoKey;
+    private final long size;
+    private final String description;
+    private final boolean isPublic;
+    private final FileChannel channel;
+
+    private final TreeMap<Long, Long> received = new TreeMap<>();
+    private long receivedBytes;
+    private volatile long expiresAt;
+
+    // Chunk writes share the channel; completing or expiring the session takes it exclusively
+    private final ReadWriteLock channelLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    UploadSession(String id, Long userId, String videoKey, long size, String description,
+                  boolean isPublic, FileChannel channel, long expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.videoKey = videoKey;
+        this.size = size;
+        this.description = description;
+        this.isPublic = isPublic;
+        this.channel = channel;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getVideoKey() {
+        return videoKey;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isPublic() {
+        return isPublic;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    ReadWriteLock getChannelLock() {
+        return channelLock;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+
+    // Length of the gap-free prefix, i.e. where a sequential client should resume
+    public synchronized long getCommittedOffset() {
+        Map.Entry<Long, Long> first = received.firstEntry();
+        return first != null && first.getKey() == 0 ? first.getValue() : 0;
+    }
+
+    public synchronized long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public synchronized boolean isComplete() {
+        return getCommittedOffset() == size;
+    }
+
+    synchronized void markReceived(long start, long end) {
+        if (start >= end) {
+            return;
+        }
+        // Merge with every interval that overlaps or touches [start, end)
+        Map.Entry<Long, Long> before = received.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+            receivedBytes -= before.getValue() - before.getKey();
+            received.remove(before.getKey());
+        }
+        Map.Entry<Long, Long> next = received.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            receivedBytes -= next.getValue() - next.getKey();
+            received.remove(next.getKey());
+            next = received.ceilingEntry(start);
+        }
+        received.put(start, end);
+        receivedBytes += end - start;
+    }
+}
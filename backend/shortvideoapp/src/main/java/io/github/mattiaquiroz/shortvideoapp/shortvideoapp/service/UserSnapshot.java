@@ -0,0 +1,53 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
+
+// Read-only copy of the user fields requests ask about most, cached by UserSnapshotCache.
+// Counters and credentials are left out; load the User for those.
+public final class UserSnapshot {
+
+    private final Long id;
+    private final String username;
+    private final String fullName;
+    private final String profilePictureUrl;
+    private final String bio;
+    private final boolean privateAccount;
+    private final long loadedAt = System.nanoTime();
+
+    UserSnapshot(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.fullName = user.getFullName();
+        this.profilePictureUrl = user.getProfilePictureUrl();
+        this.bio = user.getBio();
+        this.privateAccount = user.isPrivateAccount();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getProfilePictureUrl() {
+        return profilePictureUrl;
+    }
+
+    public String getBio() {
+        return bio;
+    }
+
+    public boolean isPrivateAccount() {
+        return privateAccount;
+    }
+
+    long getLoadedAt() {
+        return loadedAt;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Read-through cache of UserSnapshots so authenticated requests don't each read the users
+// table. Anything that changes a user's profile or removes the user must call invalidate().
+@Component
+public class UserSnapshotCache {
+
+    private static final int GENERATION_SLOTS = 1024;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${auth.user-cache.max-entries:10000}")
+    private int maxEntries;
+
+    // Safety net for changes made outside the application
+    @Value("${auth.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // Read on every authenticated request, so lookups take no lock; the size bound is
+    // enforced by trim() when an insert overshoots it
+    private final ConcurrentHashMap<Long, UserSnapshot> snapshots = new ConcurrentHashMap<>(256);
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    // Bumped by invalidate(), so a load that overlapped it isn't cached. Kept per slot of
+    // user ids rather than per id to stay bounded; a shared slot only costs a load that
+    // goes uncached.
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+
+    // Empty if the user doesn't exist (any more); that isn't cached
+    public Optional<UserSnapshot> get(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        UserSnapshot snapshot = snapshots.get(userId);
+        if (snapshot != null
+                && System.nanoTime() - snapshot.getLoadedAt() < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            return Optional.of(snapshot);
+        }
+
+        long generation = generations.get(slot(userId));
+        Optional<User> user = userRepository.findById(userId);
+        if (user.isEmpty()) {
+            invalidate(userId);
+            return Optional.empty();
+        }
+        UserSnapshot loaded = new UserSnapshot(user.get());
+        snapshots.put(userId, loaded);
+        // Invalidated while loading: what was read may already be stale (or the user gone),
+        // so serve it to this request only. An invalidate() landing after this check removes
+        // the entry itself.
+        if (generations.get(slot(userId)) != generation) {
+            snapshots.remove(userId, loaded);
+        } else if (snapshots.size() > maxEntries) {
+            trim();
+        }
+        return Optional.of(loaded);
+    }
+
+    public void invalidate(Long userId) {
+        generations.incrementAndGet(slot(userId));
+        snapshots.remove(userId);
+    }
+
+    // Brings the cache back under its bound: expired snapshots go first, then arbitrary ones
+    // until a tenth of the room is free again. One thread trims at a time; the others carry on.
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+            snapshots.values().removeIf(snapshot -> now - snapshot.getLoadedAt() >= ttlNanos);
+            int target = maxEntries - maxEntries / 10;
+            Iterator<Long> keys = snapshots.keySet().iterator();
+            while (snapshots.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private static int slot(Long userId) {
+        return (int) Math.floorMod(userId, (long) GENERATION_SLOTS);
+    }
+}
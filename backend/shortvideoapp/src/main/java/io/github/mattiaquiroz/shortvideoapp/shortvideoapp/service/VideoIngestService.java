@@ -0,0 +1,141 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.ProcessingStatus;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Shared tail of every upload path: where an upload is staged and how a finished upload
+// becomes a Video (blob store, entity, queued processing).
+@Service
+public class VideoIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoIngestService.class);
+
+    private static final String VIDEO_ID_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!_";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private ProcessingPipeline processingPipeline;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactions;
+
+    @PostConstruct
+    public void init() {
+        transactions = new TransactionTemplate(transactionManager);
+    }
+
+    // Generates a unique 11-character key and creates its upload directory
+    public String newVideoKey() throws IOException {
+        StringBuilder sb = new StringBuilder(11);
+        for (int i = 0; i < 11; i++) {
+            sb.append(VIDEO_ID_CHARS.charAt(RANDOM.nextInt(VIDEO_ID_CHARS.length())));
+        }
+        String key = sb.toString();
+        Files.createDirectories(mediaStore.locate(baseDir(key)));
+        return key;
+    }
+
+    public Path videoFile(String key) {
+        return mediaStore.locate(baseDir(key) + key + ".mp4");
+    }
+
+    public Path thumbnailFile(String key) {
+        return mediaStore.locate(baseDir(key) + key + ".jpg");
+    }
+
+    // Turns an upload whose video and thumbnail files are in place into a saved Video and
+    // queues it for processing. Only the thumbnail goes into the blob store here; the video
+    // stays a private staged file, and ProcessingPipeline hashes it, makes it faststart and
+    // stores it, so nothing proportional to its size runs on the request. Hashes may be null
+    // when the upload path didn't compute them while streaming.
+    public Video register(User user, String key, String description, boolean isPublic,
+                          String videoSha256, String thumbnailSha256) throws IOException {
+        String thumbnailUrl = null;
+        Path thumbnailPath = thumbnailFile(key);
+        if (Files.exists(thumbnailPath)) {
+            if (thumbnailSha256 == null) {
+                thumbnailSha256 = BlobStore.sha256(thumbnailPath);
+            }
+            thumbnailUrl = blobStore.store(thumbnailSha256, thumbnailPath, ".jpg", "image/jpeg");
+        } else {
+            thumbnailSha256 = null;
+        }
+
+        Video video = new Video();
+        video.setDescription(description);
+        video.setIsPublic(isPublic);
+        video.setUser(user);
+        video.setVideoUrl(baseDir(key) + key + ".mp4");
+        video.setThumbnailUrl(thumbnailUrl);
+        video.setStagedSha256(videoSha256);
+        video.setThumbnailBlob(thumbnailSha256);
+        // Renditions and packages stay per video, next to where the upload was staged
+        video.setStorageDir(baseDir(key));
+
+        video.setProcessingStatus(ProcessingStatus.UPLOADED);
+
+        try {
+            // The video and its first processing job commit together
+            return transactions.execute(status -> {
+                Video savedVideo = videoRepository.save(video);
+                processingPipeline.submit(savedVideo.getId());
+                return savedVideo;
+            });
+        } catch (RuntimeException e) {
+            blobStore.release(thumbnailSha256);
+            throw e;
+        }
+    }
+
+    // Removes everything stored under a key whose upload never became a Video
+    public void discard(String key) {
+        Path dir = mediaStore.locate(baseDir(key));
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to clean up upload {}", dir, e);
+        }
+    }
+
+    // Layout: assets/videos/{fan-out}/{key}/, spread over 256 folders so no directory grows
+    // with the number of users. Older videos keep their stored assets/videos/user_{id}/ paths.
+    private String baseDir(String key) {
+        return "assets/videos/" + String.format("%02x", key.hashCode() & 0xFF) + "/" + key + "/";
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.Video;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.VideoRendition;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRenditionRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.VideoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Splits uploaded videos (or their rendition ladder) into fMP4 (CMAF) segments with a DASH
+// manifest and HLS playlists over the same segments. Each packaging run writes a new version
+// directory under {videoFolder}/stream/, so every URL below a version never changes content.
+@Service
+public class VideoPackagingService {
+
+    public static final String STREAM_DIR = "stream";
+    public static final String HLS_MANIFEST = "master.m3u8";
+    public static final String DASH_MANIFEST = "manifest.mpd";
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoPackagingService.class);
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoRenditionRepository renditionRepository;
+
+    @Autowired
+    private StreamDescriptorCache streamDescriptors;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Value("${media.packaging.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+
+    @Value("${media.packaging.segment-seconds:2}")
+    private int segmentSeconds;
+
+    @Value("${media.packaging.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    public void packageVideo(Long videoId) throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        Optional<Video> videoOpt = videoRepository.findById(videoId);
+        if (videoOpt.isEmpty()) {
+            return;
+        }
+        Path source = mediaStore.resolve(videoOpt.get().getVideoUrl());
+        if (!Files.isRegularFile(source)) {
+            logger.warn("Cannot package video {}: source {} is missing", videoId, source);
+            return;
+        }
+
+        // Renditions share keyframe-aligned segment boundaries and form the ABR ladder. Without
+        // them the original is packaged as a single representation
+        List<Path> inputs = new ArrayList<>();
+        for (VideoRendition rendition : renditionRepository.findByVideoIdOrderByHeightAsc(videoId)) {
+            Path renditionPath = mediaStore.resolve(rendition.getFileUrl());
+            if (Files.isRegularFile(renditionPath)) {
+                inputs.add(renditionPath);
+            }
+        }
+        if (inputs.isEmpty()) {
+            inputs.add(source);
+        }
+
+        Path streamRoot = mediaStore.resolve(mediaDirectory(videoOpt.get())).resolve(STREAM_DIR);
+        String version = Long.toString(System.currentTimeMillis(), 36);
+        Path workDir = streamRoot.resolve("." + version + ".tmp");
+        Files.createDirectories(workDir);
+
+        try {
+            runFfmpeg(inputs, workDir);
+            // Publish the version only once it is complete
+            Files.move(workDir, streamRoot.resolve(version), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | InterruptedException e) {
+            deleteRecursively(workDir);
+            throw e;
+        }
+
+        String previous = videoOpt.get().getPackageVersion();
+        videoRepository.updatePackageVersion(videoId, version);
+        streamDescriptors.invalidate(videoId);
+
+        // Keep the previous version for players still on it, drop anything older
+        try (Stream<Path> versions = Files.list(streamRoot)) {
+            for (Path dir : versions.toList()) {
+                String name = dir.getFileName().toString();
+                if (!name.equals(version) && !name.equals(previous)) {
+                    deleteRecursively(dir);
+                }
+            }
+        }
+    }
+
+    public Path resolvePackageFile(Path mediaDirectory, String version, String fileName) {
+        return mediaDirectory.resolve(STREAM_DIR).resolve(version).resolve(fileName);
+    }
+
+    // Storage key of the directory holding a video's renditions and stream packages. Older
+    // videos keep them next to the original upload.
+    public static String mediaDirectory(Video video) {
+        if (video.getStorageDir() != null) {
+            return video.getStorageDir();
+        }
+        String videoUrl = video.getVideoUrl();
+        return videoUrl.substring(0, Math.max(0, videoUrl.lastIndexOf('/')));
+    }
+
+    private void runFfmpeg(List<Path> inputs, Path workDir) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-nostdin", "-y", "-loglevel", "error"));
+        for (Path input : inputs) {
+            command.add("-i");
+            command.add(input.toAbsolutePath().toString());
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            command.add("-map");
+            command.add(i + ":v:0");
+        }
+        command.addAll(List.of(
+                "-map", "0:a:0?",
+                "-c", "copy",
+                "-f", "dash",
+                "-seg_duration", Integer.toString(segmentSeconds),
+                "-use_template", "1",
+                "-use_timeline", "0",
+                "-hls_playlist", "1",
+                "-init_seg_name", "init-$RepresentationID$.m4s",
+                "-media_seg_name", "chunk-$RepresentationID$-$Number%05d$.m4s",
+                DASH_MANIFEST));
+
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (!process.waitFor(timeoutMinutes, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IOException("ffmpeg timed out after " + timeoutMinutes + " minutes");
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("ffmpeg exited with status " + process.exitValue());
+        }
+        if (!Files.exists(workDir.resolve(HLS_MANIFEST)) || !Files.exists(workDir.resolve(DASH_MANIFEST))) {
+            throw new IOException("ffmpeg did not produce the expected manifests");
+        }
+    }
+
+    private void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
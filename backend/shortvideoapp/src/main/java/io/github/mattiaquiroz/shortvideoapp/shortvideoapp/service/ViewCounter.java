@@ -0,0 +1,130 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind view counts and bytes served. Both are added to per-video LongAdders on the
+// read path and flushed as one batch of relative UPDATEs, so concurrent views are never lost
+// and serving a video never writes to the database.
+@Service
+public class ViewCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewCounter.class);
+
+    private static final String FLUSH_SQL = "UPDATE videos SET views_count = views_count + ?, "
+            + "bytes_served = COALESCE(bytes_served, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Videos with views or bytes since the last flush, plus those idle for less than one
+    // interval; idle ones are dropped by flush() so the map only holds recently viewed videos
+    private final ConcurrentHashMap<Long, Counters> pending = new ConcurrentHashMap<>();
+
+    // Counters dropped by the last flush. A thread that looked one up just before it was
+    // removed may still add to it, so the next flush collects whatever landed there. Only
+    // touched by flush().
+    private List<Map.Entry<Long, Counters>> retired = List.of();
+
+    public void record(Long videoId) {
+        counters(videoId).views.increment();
+    }
+
+    // Body bytes actually delivered for a video, partial responses included. Full-file
+    // responses sent with sendfile are not reported here, since their delivery can't be
+    // observed; range responses never use sendfile.
+    public void recordBytes(Long videoId, long bytes) {
+        if (bytes > 0) {
+            counters(videoId).bytes.add(bytes);
+        }
+    }
+
+    // Views recorded but not yet flushed, so responses can show an up-to-date count
+    public long pending(Long videoId) {
+        Counters counters = pending.get(videoId);
+        return counters != null ? counters.views.sum() : 0;
+    }
+
+    public void discard(Long videoId) {
+        pending.remove(videoId);
+    }
+
+    @Scheduled(fixedDelayString = "${views.flush-interval-millis:5000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Counters> entry : retired) {
+            drain(entry.getKey(), entry.getValue(), batch);
+        }
+        List<Map.Entry<Long, Counters>> idle = new ArrayList<>();
+        for (Map.Entry<Long, Counters> entry : pending.entrySet()) {
+            if (!drain(entry.getKey(), entry.getValue(), batch)) {
+                idle.add(entry);
+            }
+        }
+        retired = List.of();
+
+        if (!batch.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            } catch (RuntimeException e) {
+                // Put the deltas back so the next flush retries them
+                for (Object[] row : batch) {
+                    Counters counters = counters((Long) row[2]);
+                    counters.views.add((Long) row[0]);
+                    counters.bytes.add((Long) row[1]);
+                }
+                logger.warn("Failed to flush {} view count deltas, will retry", batch.size(), e);
+                return;
+            }
+        }
+
+        // Nothing was recorded for these over a whole interval, so drop them; the value check
+        // leaves counters alone if discard() or a new view replaced them meanwhile
+        List<Map.Entry<Long, Counters>> removed = new ArrayList<>();
+        for (Map.Entry<Long, Counters> entry : idle) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                removed.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        retired = removed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Moves the counters' deltas into the batch; false if there were none
+    private boolean drain(Long videoId, Counters counters, List<Object[]> batch) {
+        long views = counters.views.sum();
+        long bytes = counters.bytes.sum();
+        if (views == 0 && bytes == 0) {
+            return false;
+        }
+        // Subtracting rather than resetting keeps increments that land meanwhile
+        counters.views.add(-views);
+        counters.bytes.add(-bytes);
+        batch.add(new Object[] {views, bytes, videoId});
+        return true;
+    }
+
+    private Counters counters(Long videoId) {
+        return pending.computeIfAbsent(videoId, id -> new Counters());
+    }
+
+    private static final class Counters {
+        private final LongAdder views = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+}
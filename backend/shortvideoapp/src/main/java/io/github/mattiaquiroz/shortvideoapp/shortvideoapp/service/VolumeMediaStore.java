@@ -0,0 +1,189 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Spreads media over several directories (one per disk) with a consistent-hash ring, so
+// adding a volume moves only about 1/n of the objects. Everything belonging to one video
+// hashes by its key and stays together; blobs hash by their SHA-256 and profile pictures by
+// user. An optional cold volume holds what MediaTieringService demoted and is looked at
+// last. With the default single volume "." paths resolve exactly as before.
+@Component
+@ConditionalOnProperty(name = "media.store", havingValue = "volumes", matchIfMissing = true)
+public class VolumeMediaStore implements MediaStore {
+
+    private static final String PREFIX = "assets/";
+
+    @Value("${media.store.volumes:.}")
+    private List<String> volumeNames;
+
+    // Points per volume on the ring; more points even out the share each volume gets
+    @Value("${media.store.virtual-nodes:128}")
+    private int virtualNodes;
+
+    // Slower, bigger storage for videos nobody watches any more; empty disables tiering
+    @Value("${media.store.cold-volume:}")
+    private String coldVolumeName;
+
+    private List<Path> volumes;
+    private Path coldVolume;
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        volumes = new ArrayList<>();
+        for (String name : volumeNames) {
+            Path volume = Paths.get(name.trim()).toAbsolutePath().normalize();
+            Files.createDirectories(volume.resolve(PREFIX));
+            volumes.add(volume);
+        }
+        if (!coldVolumeName.isBlank()) {
+            coldVolume = Paths.get(coldVolumeName.trim()).toAbsolutePath().normalize();
+            if (volumes.contains(coldVolume)) {
+                throw new IllegalStateException("The cold volume must not also be a hot volume: " + coldVolume);
+            }
+            Files.createDirectories(coldVolume.resolve(PREFIX));
+        }
+        for (int i = 0; i < volumes.size(); i++) {
+            // Ring points depend on the volume's path only, not on its position in the list
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(hash(volumes.get(i) + "#" + node), i);
+            }
+        }
+    }
+
+    @Override
+    public Path resolve(String key) {
+        Path owned = locate(key);
+        if ((volumes.size() == 1 && coldVolume == null) || Files.exists(owned)) {
+            return owned;
+        }
+        String relative = normalize(key);
+        for (Path volume : volumes) {
+            Path candidate = volume.resolve(relative);
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        if (coldVolume != null) {
+            Path candidate = locateCold(key);
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        return owned;
+    }
+
+    @Override
+    public Path locate(String key) {
+        String relative = normalize(key);
+        Path volume = volumes.size() == 1 ? volumes.get(0) : volumes.get(owner(placementKey(relative)));
+        Path path = volume.resolve(relative).normalize();
+        if (!path.startsWith(volume)) {
+            throw new IllegalArgumentException("Storage key escapes its volume: " + key);
+        }
+        return path;
+    }
+
+    @Override
+    public List<Path> getVolumes() {
+        return List.copyOf(volumes);
+    }
+
+    @Override
+    public Path getColdVolume() {
+        return coldVolume;
+    }
+
+    @Override
+    public Path locateCold(String key) {
+        if (coldVolume == null) {
+            return null;
+        }
+        Path path = coldVolume.resolve(normalize(key)).normalize();
+        if (!path.startsWith(coldVolume)) {
+            throw new IllegalArgumentException("Storage key escapes its volume: " + key);
+        }
+        return path;
+    }
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Different file systems: copy next to the target, then rename into place
+            Path partial = target.resolveSibling("." + target.getFileName() + ".partial");
+            try {
+                Files.copy(source, partial, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+            Files.delete(source);
+        }
+    }
+
+    // The part of a key that decides placement:
+    //   assets/videos/{fan-out}/{videoKey}/...  -> videoKey
+    //   assets/blobs/ab/cd/{sha256}.ext         -> sha256
+    //   assets/users/{user}/...                 -> user
+    // Anything else places by the whole key.
+    public static String placementKey(String key) {
+        String[] parts = normalize(key).split("/");
+        if (parts.length >= 4 && parts[1].equals("videos")) {
+            return parts[3];
+        }
+        if (parts.length >= 5 && parts[1].equals("blobs")) {
+            int dot = parts[4].indexOf('.');
+            return dot > 0 ? parts[4].substring(0, dot) : parts[4];
+        }
+        if (parts.length >= 3 && parts[1].equals("users")) {
+            return parts[2];
+        }
+        return key;
+    }
+
+    private int owner(String placementKey) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(placementKey));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    private static String normalize(String key) {
+        String relative = key.replace('\\', '/');
+        while (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+        return relative.startsWith(PREFIX) ? relative : PREFIX + relative;
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,8 +2,12 @@ package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
 
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.entity.User;
 import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.repository.UserRepository;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UserSnapshot;
+import io.github.mattiaquiroz.shortvideoapp.shortvideoapp.service.UserSnapshotCache;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
@@ -12,27 +16,45 @@ import java.util.Optional;
 public class AuthUtil {
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserSnapshotCache userSnapshots;
 
-    public Long getCurrentUserId(HttpServletRequest request) {
-        String token = extractTokenFromRequest(request);
-        if (token != null && jwtUtil.validateToken(token)) {
-            return jwtUtil.extractUserId(token);
+    // The principal JwtAuthenticationFilter stored for this request, or null if the request
+    // carries no valid token
+    public AuthenticatedUser getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                && !principal.isExpired()) {
+            return principal;
         }
         return null;
     }
 
+    public Long getCurrentUserId(HttpServletRequest request) {
+        AuthenticatedUser principal = getPrincipal();
+        return principal != null ? principal.getUserId() : null;
+    }
+
     public String getCurrentUsername(HttpServletRequest request) {
-        String token = extractTokenFromRequest(request);
-        if (token != null && jwtUtil.validateToken(token)) {
-            return jwtUtil.extractUsername(token);
-        }
-        return null;
+        AuthenticatedUser principal = getPrincipal();
+        return principal != null ? principal.getUsername() : null;
     }
 
+    // Cached profile of the caller; no database read on a hit
+    public Optional<UserSnapshot> getCurrentUserSnapshot(HttpServletRequest request) {
+        return userSnapshots.get(getCurrentUserId(request));
+    }
+
+    // An unloaded User for the caller, for call sites that only need identity: setting an
+    // association, passing it to a query, comparing ids. Reading other fields loads the row.
+    // Empty if there is no valid token or the user no longer exists.
+    public Optional<User> getCurrentUserReference(HttpServletRequest request) {
+        return getCurrentUserSnapshot(request).map(snapshot -> userRepository.getReferenceById(snapshot.getId()));
+    }
+
+    // Loads the full entity; only for call sites that read or change its state
     public Optional<User> getCurrentUser(HttpServletRequest request) {
         Long userId = getCurrentUserId(request);
         if (userId != null) {
@@ -41,16 +63,14 @@ public class AuthUtil {
         return Optional.empty();
     }
 
-    private String extractTokenFromRequest(HttpServletRequest request) {
-        String authorizationHeader = request.getHeader("Authorization");
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            return authorizationHeader.substring(7);
-        }
-        return null;
+    // Identifies a viewer for unique-viewer counting: the user id when signed in, the
+    // client address otherwise
+    public String getViewerKey(HttpServletRequest request) {
+        Long userId = getCurrentUserId(request);
+        return userId != null ? "u:" + userId : "a:" + request.getRemoteAddr();
     }
 
     public boolean isAuthenticated(HttpServletRequest request) {
-        String token = extractTokenFromRequest(request);
-        return token != null && jwtUtil.validateToken(token);
+        return getPrincipal() != null;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.time.Instant;
+
+// Who a request is from, as read from its verified JWT. JwtAuthenticationFilter parses the
+// token once and stores this as the principal; everything after reads it from there.
+public final class AuthenticatedUser {
+
+    private final Long userId;
+    private final String username;
+    private final Instant expiresAt;
+
+    public AuthenticatedUser(Long userId, String username, Instant expiresAt) {
+        this.userId = userId;
+        this.username = username;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return !Instant.now().isBefore(expiresAt);
+    }
+
+    // Spring Security uses this as Authentication.getName()
+    @Override
+    public String toString() {
+        return username;
+    }
+}
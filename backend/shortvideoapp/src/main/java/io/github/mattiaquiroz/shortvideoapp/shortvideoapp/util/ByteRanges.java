@@ -0,0 +1,247 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// Parsed "Range: bytes=..." header (RFC 7233), resolved against a representation length.
+// Ranges are kept as sorted, non-overlapping inclusive [start, end] pairs in a flat array.
+public final class ByteRanges {
+
+    public static final ByteRanges UNSATISFIABLE = new ByteRanges(new long[0], 0, false);
+
+    // Above this many specs the header is ignored rather than parsed
+    private static final int MAX_SPECS = 256;
+    // Above this many parts after coalescing we answer with a single covering range
+    private static final int MAX_PARTS = 16;
+    // Ranges separated by fewer bytes than a part header costs are merged
+    private static final long COALESCE_GAP = 80;
+
+    private final long[] bounds;
+    private final int count;
+    private final boolean openEnded;
+
+    private ByteRanges(long[] bounds, int count, boolean openEnded) {
+        this.bounds = bounds;
+        this.count = count;
+        this.openEnded = openEnded;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long start(int index) {
+        return bounds[index * 2];
+    }
+
+    public long end(int index) {
+        return bounds[index * 2 + 1];
+    }
+
+    public long length(int index) {
+        return end(index) - start(index) + 1;
+    }
+
+    // True for a single "bytes=N-" range. The client left the end to us, so a shorter
+    // response is fine and it will ask for the rest when it needs it.
+    public boolean isOpenEnded() {
+        return openEnded;
+    }
+
+    // Same range with its end pulled in to at most maxLength bytes
+    public ByteRanges truncate(long maxLength) {
+        if (count != 1 || length(0) <= maxLength) {
+            return this;
+        }
+        return new ByteRanges(new long[] {start(0), start(0) + maxLength - 1}, 1, openEnded);
+    }
+
+    // Returns null when the header is absent or not a valid byte range set, in which case
+    // it must be ignored and the full representation served. Returns UNSATISFIABLE when the
+    // header is valid but no range overlaps the representation.
+    public static ByteRanges parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+
+        long[] bounds = new long[4];
+        int count = 0;
+        int specs = 0;
+        int n = header.length();
+        int pos = 6;
+        boolean openEnded = false;
+
+        while (true) {
+            pos = skipWhitespace(header, pos);
+            if (pos >= n) {
+                break;
+            }
+            if (header.charAt(pos) == ',') {
+                pos++;
+                continue;
+            }
+            if (++specs > MAX_SPECS) {
+                return null;
+            }
+
+            long first = -1;
+            if (header.charAt(pos) != '-') {
+                int digitsEnd = skipDigits(header, pos);
+                if (digitsEnd == pos) {
+                    return null;
+                }
+                first = parseDigits(header, pos, digitsEnd);
+                pos = digitsEnd;
+            }
+            if (pos >= n || header.charAt(pos) != '-') {
+                return null;
+            }
+            pos++;
+
+            long last = -1;
+            int digitsEnd = skipDigits(header, pos);
+            if (digitsEnd > pos) {
+                last = parseDigits(header, pos, digitsEnd);
+                pos = digitsEnd;
+            }
+
+            pos = skipWhitespace(header, pos);
+            if (pos < n && header.charAt(pos) != ',') {
+                return null;
+            }
+
+            long start;
+            long end;
+            if (first < 0) {
+                // Suffix range: the last N bytes
+                if (last < 0) {
+                    return null;
+                }
+                if (last == 0 || length == 0) {
+                    continue;
+                }
+                start = Math.max(0, length - last);
+                end = length - 1;
+            } else {
+                if (last >= 0 && last < first) {
+                    return null;
+                }
+                if (first >= length) {
+                    continue;
+                }
+                start = first;
+                end = (last < 0 || last >= length) ? length - 1 : last;
+                openEnded = last < 0;
+            }
+
+            if (count * 2 == bounds.length) {
+                long[] grown = new long[bounds.length * 2];
+                System.arraycopy(bounds, 0, grown, 0, bounds.length);
+                bounds = grown;
+            }
+            bounds[count * 2] = start;
+            bounds[count * 2 + 1] = end;
+            count++;
+        }
+
+        if (specs == 0) {
+            return null;
+        }
+        if (count == 0) {
+            return UNSATISFIABLE;
+        }
+        return coalesce(bounds, count, specs == 1 && openEnded);
+    }
+
+    // Evaluates an If-Range precondition: the range applies only if the validator still
+    // matches, otherwise the full representation must be sent. Weak tags never match.
+    public static boolean ifRangeMatches(String ifRange, String etag, long lastModifiedMillis) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("W/")) {
+            return false;
+        }
+        if (value.startsWith("\"")) {
+            return etag != null && !etag.startsWith("W/") && value.equals(etag);
+        }
+        try {
+            long since = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return since == lastModifiedMillis / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static ByteRanges coalesce(long[] bounds, int count, boolean openEnded) {
+        // Insertion sort on pairs; counts are small and usually already ordered
+        for (int i = 1; i < count; i++) {
+            long start = bounds[i * 2];
+            long end = bounds[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && bounds[j * 2] > start) {
+                bounds[(j + 1) * 2] = bounds[j * 2];
+                bounds[(j + 1) * 2 + 1] = bounds[j * 2 + 1];
+                j--;
+            }
+            bounds[(j + 1) * 2] = start;
+            bounds[(j + 1) * 2 + 1] = end;
+        }
+
+        int merged = 0;
+        for (int i = 1; i < count; i++) {
+            long start = bounds[i * 2];
+            long end = bounds[i * 2 + 1];
+            if (start <= bounds[merged * 2 + 1] + COALESCE_GAP + 1) {
+                bounds[merged * 2 + 1] = Math.max(bounds[merged * 2 + 1], end);
+            } else {
+                merged++;
+                bounds[merged * 2] = start;
+                bounds[merged * 2 + 1] = end;
+            }
+        }
+        merged++;
+
+        if (merged > MAX_PARTS) {
+            long end = 0;
+            for (int i = 0; i < merged; i++) {
+                end = Math.max(end, bounds[i * 2 + 1]);
+            }
+            bounds[1] = end;
+            merged = 1;
+        }
+        return new ByteRanges(bounds, merged, openEnded);
+    }
+
+    private static int skipWhitespace(String s, int pos) {
+        while (pos < s.length() && (s.charAt(pos) == ' ' || s.charAt(pos) == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(String s, int pos) {
+        while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long parseDigits(String s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                // Larger than any file we could serve
+                return Long.MAX_VALUE;
+            }
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+public final class FileValidators {
+
+    private FileValidators() {}
+
+    // Strong ETag from file identity: inode/device, size and modification time. Any
+    // replacement or rewrite of the file changes at least one of them.
+    public static String strongETag(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return "\"" + Integer.toHexString(fileKey != null ? fileKey.hashCode() : 0)
+                + "-" + Long.toHexString(attributes.size())
+                + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+    }
+}
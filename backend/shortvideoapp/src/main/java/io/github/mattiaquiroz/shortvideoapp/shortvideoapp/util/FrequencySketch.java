@@ -0,0 +1,53 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+// Count-min sketch of recent access frequency, used as a TinyLFU admission filter: a new
+// entry only displaces an old one if it has been requested more often recently. Counters
+// are halved periodically so popularity decays.
+public final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int[] counters;
+    private final int mask;
+    private final int resetThreshold;
+    private int additions;
+
+    public FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(64, expectedEntries) * 2 - 1) << 1;
+        this.counters = new int[DEPTH * width];
+        this.mask = width - 1;
+        this.resetThreshold = width * 10;
+    }
+
+    public synchronized void increment(long key) {
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * (mask + 1) + slot(key, row);
+            if (counters[index] < Integer.MAX_VALUE) {
+                counters[index]++;
+            }
+        }
+        if (++additions >= resetThreshold) {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>>= 1;
+            }
+            additions /= 2;
+        }
+    }
+
+    public synchronized int frequency(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters[row * (mask + 1) + slot(key, row)]);
+        }
+        return min;
+    }
+
+    private int slot(long key, int row) {
+        long hash = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        hash ^= hash >>> 29;
+        return (int) hash & mask;
+    }
+}
@@ -2,13 +2,25 @@ package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 @Component
@@ -20,8 +32,62 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Tokens live for as long as jwt.expiration, so a client sends the same one for months;
+    // verifying it once and remembering the result saves the HMAC and JSON work per request
+    @Value("${jwt.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Both are immutable and thread-safe, so they're built once rather than per token
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Keyed by the token's SHA-256 so live bearer tokens aren't kept in memory. Only tokens
+    // that verified are added, so garbage tokens can't push real ones out. Lookups take no
+    // lock; the size bound is enforced by trim() when an insert overshoots it.
+    private final ConcurrentHashMap<String, VerifiedToken> verified = new ConcurrentHashMap<>(256);
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    // A digest per thread instead of one per request; MessageDigest isn't thread-safe
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private Counter cacheHits;
+    private Counter cacheMisses;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+
+        cacheHits = Counter.builder("auth.token.cache.requests").tag("result", "hit")
+                .description("Bearer tokens answered from the verified-token cache").register(meterRegistry);
+        cacheMisses = Counter.builder("auth.token.cache.requests").tag("result", "miss")
+                .description("Bearer tokens that had to be verified").register(meterRegistry);
+        Gauge.builder("auth.token.cache.entries", this, JwtUtil::cachedTokens).register(meterRegistry);
+    }
+
+    // Verifies signature and expiry in one parse; null if the token isn't valid
+    public AuthenticatedUser parse(String token) {
+        try {
+            return verify(token).principal;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public int cachedTokens() {
+        return verified.size();
     }
 
     public String generateToken(String username, Long userId) {
@@ -36,7 +102,7 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -58,11 +124,62 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return verify(token).claims;
+    }
+
+    // Throws like parseClaimsJws for tokens that don't verify
+    private VerifiedToken verify(String token) {
+        if (!cacheEnabled) {
+            return new VerifiedToken(parser.parseClaimsJws(token).getBody());
+        }
+
+        String key = sha256(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(key);
+        if (cached != null && cached.expiresAt <= now) {
+            verified.remove(key, cached);
+            cached = null;
+        }
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+
+        cacheMisses.increment();
+        VerifiedToken verifiedToken = new VerifiedToken(parser.parseClaimsJws(token).getBody());
+        // Tokens without an expiry would never leave the cache on their own
+        if (verifiedToken.expiresAt != Long.MAX_VALUE) {
+            verified.put(key, verifiedToken);
+            if (verified.size() > cacheMaxEntries) {
+                trim(now);
+            }
+        }
+        return verifiedToken;
+    }
+
+    // Brings the cache back under its bound: expired tokens go first, then arbitrary ones
+    // (keys are hashes, so iteration order is effectively random) until a tenth of the room is
+    // free again. One thread trims at a time; the others carry on.
+    private void trim(long now) {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            verified.values().removeIf(token -> token.expiresAt <= now);
+            int target = cacheMaxEntries - cacheMaxEntries / 10;
+            Iterator<String> keys = verified.keySet().iterator();
+            while (verified.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private static String sha256(String token) {
+        MessageDigest digest = SHA256.get();
+        return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
     }
 
     private Boolean isTokenExpired(String token) {
@@ -75,18 +192,26 @@ public class JwtUtil {
     }
 
     public Boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return parse(token) != null;
     }
 
     public long getExpirationTime() {
         return expiration;
     }
+
+    // What a token verified to; claims are shared between requests and must not be modified
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final AuthenticatedUser principal;
+        private final long expiresAt;
+
+        private VerifiedToken(Claims claims) {
+            this.claims = claims;
+            Long userId = claims.get("userId", Long.class);
+            Date expiration = claims.getExpiration();
+            this.principal = userId != null && claims.getSubject() != null && expiration != null
+                    ? new AuthenticatedUser(userId, claims.getSubject(), expiration.toInstant()) : null;
+            this.expiresAt = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+        }
+    }
 } 
\ No newline at end of file
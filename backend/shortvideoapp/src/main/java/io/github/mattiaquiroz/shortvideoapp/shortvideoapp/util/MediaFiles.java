@@ -0,0 +1,73 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Copy-then-delete moves of media between volumes. Each file appears at its destination
+// atomically, and the source stays readable until the caller has pointed readers at the
+// copy, so a file being streamed never disappears mid-request.
+public final class MediaFiles {
+
+    private MediaFiles() {}
+
+    // Copies a file next to target and renames it into place. An existing target of the
+    // same size is taken as an earlier, complete copy.
+    public static void copy(Path source, Path target) throws IOException {
+        if (Files.exists(target) && Files.size(target) == Files.size(source)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path partial = target.resolveSibling("." + target.getFileName() + ".partial");
+        try {
+            Files.copy(source, partial, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    // Copies every file under source to the same place under target and returns the
+    // source files copied
+    public static List<Path> copyTree(Path source, Path target) throws IOException {
+        List<Path> files = regularFiles(source);
+        for (Path file : files) {
+            copy(file, target.resolve(source.relativize(file).toString()));
+        }
+        return files;
+    }
+
+    // Deletes the given files under root, then every folder under root that is left empty.
+    // Files added since the copy are kept.
+    public static void deleteCopied(Path root, List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path dir : walk.filter(Files::isDirectory).sorted(Comparator.reverseOrder()).toList()) {
+                try {
+                    Files.deleteIfExists(dir);
+                } catch (DirectoryNotEmptyException e) {
+                    // Still in use
+                }
+            }
+        }
+    }
+
+    public static List<Path> regularFiles(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return List.of();
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile).toList();
+        }
+    }
+}
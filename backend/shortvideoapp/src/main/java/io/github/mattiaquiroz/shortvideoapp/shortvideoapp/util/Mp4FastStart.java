@@ -0,0 +1,198 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+// Moves the moov box of an MP4 ahead of its media data ("faststart") so players can start
+// from the first bytes instead of seeking to the tail. Only moov is held in memory; the
+// media data is copied channel to channel. Chunk offsets (stco/co64) that pointed into the
+// region moov is inserted in front of are shifted by the size of moov.
+public final class Mp4FastStart {
+
+    // moov of a short clip is a few hundred KB; anything far beyond this is left alone
+    private static final long MAX_MOOV_BYTES = 64L * 1024 * 1024;
+
+    private static final Set<String> CONTAINERS = Set.of("trak", "mdia", "minf", "stbl");
+
+    private Mp4FastStart() {}
+
+    // Rewrites the file in place when moov follows mdat. Returns false when the file is
+    // already faststart or is not an MP4 this rewriter handles; the file is then unchanged.
+    public static boolean apply(Path file) throws IOException {
+        Path temp = file.resolveSibling("." + file.getFileName() + ".faststart.tmp");
+        try {
+            boolean rewritten;
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                rewritten = rewrite(source, temp);
+            }
+            if (rewritten) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return rewritten;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean rewrite(FileChannel source, Path target) throws IOException {
+        long fileSize = source.size();
+        long mdatStart = -1;
+        long moovStart = -1;
+        long moovSize = 0;
+
+        // Walk the top-level boxes
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            header.clear().limit(8);
+            readFully(source, header, position);
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String type = boxType(header, 4);
+            if (size == 1) {
+                header.limit(16);
+                readFully(source, header, position + 8);
+                size = header.getLong(8);
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < 8 || position + size > fileSize) {
+                return false;
+            }
+
+            if (type.equals("moof")) {
+                // Fragmented MP4 has its own index per fragment
+                return false;
+            } else if (type.equals("mdat") && mdatStart < 0) {
+                mdatStart = position;
+            } else if (type.equals("moov")) {
+                moovStart = position;
+                moovSize = size;
+            }
+            position += size;
+        }
+
+        if (moovStart < 0 || mdatStart < 0 || moovStart < mdatStart || moovSize > MAX_MOOV_BYTES) {
+            return false;
+        }
+
+        ByteBuffer moov = ByteBuffer.allocate((int) moovSize);
+        readFully(source, moov, moovStart);
+        if (moov.getInt(0) == 0) {
+            // A size of 0 means "to end of file", which no longer holds once moov moves
+            moov.putInt(0, (int) moovSize);
+        }
+        int moovHeader = moov.getInt(0) == 1 ? 16 : 8;
+        if (!shiftChunkOffsets(moov, moovHeader, (int) moovSize, mdatStart, moovStart, moovSize)) {
+            return false;
+        }
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            copy(source, 0, mdatStart, out);
+            moov.rewind();
+            while (moov.hasRemaining()) {
+                out.write(moov);
+            }
+            copy(source, mdatStart, moovStart - mdatStart, out);
+            copy(source, moovStart + moovSize, fileSize - moovStart - moovSize, out);
+            out.force(true);
+        }
+        return true;
+    }
+
+    // Adds shift to every chunk offset inside [from, to), the region moov is inserted in
+    // front of. Data behind the old moov keeps its position.
+    private static boolean shiftChunkOffsets(ByteBuffer moov, int start, int end,
+                                             long from, long to, long shift) {
+        int position = start;
+        while (position + 8 <= end) {
+            long size = Integer.toUnsignedLong(moov.getInt(position));
+            String type = boxType(moov, position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = moov.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerSize || position + size > end) {
+                return false;
+            }
+            int body = position + headerSize;
+            int boxEnd = (int) (position + size);
+
+            if (type.equals("cmov")) {
+                // Compressed movie header; offsets cannot be patched in place
+                return false;
+            } else if (CONTAINERS.contains(type)) {
+                if (!shiftChunkOffsets(moov, body, boxEnd, from, to, shift)) {
+                    return false;
+                }
+            } else if (type.equals("stco") || type.equals("co64")) {
+                boolean wide = type.equals("co64");
+                // Full box: version/flags, then the entry count
+                long count = Integer.toUnsignedLong(moov.getInt(body + 4));
+                int entries = body + 8;
+                if (entries + count * (wide ? 8 : 4) > boxEnd) {
+                    return false;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (wide) {
+                        int index = entries + i * 8;
+                        long offset = moov.getLong(index);
+                        if (offset >= from && offset < to) {
+                            moov.putLong(index, offset + shift);
+                        }
+                    } else {
+                        int index = entries + i * 4;
+                        long offset = Integer.toUnsignedLong(moov.getInt(index));
+                        if (offset >= from && offset < to) {
+                            if (offset + shift > 0xFFFFFFFFL) {
+                                // Would need stco widened to co64, which changes moov's size
+                                return false;
+                            }
+                            moov.putInt(index, (int) (offset + shift));
+                        }
+                    }
+                }
+            }
+            position = boxEnd;
+        }
+        return true;
+    }
+
+    private static String boxType(ByteBuffer buffer, int index) {
+        char[] type = new char[4];
+        for (int i = 0; i < 4; i++) {
+            type[i] = (char) (buffer.get(index + i) & 0xFF);
+        }
+        return new String(type);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private static void copy(FileChannel source, long position, long count, FileChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long transferred = source.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += transferred;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads stream facts (duration, resolution, codecs, bitrate, where moov sits) from the
+// header boxes of an MP4. Boxes are visited with small positional reads, so only a few
+// hundred bytes of the file are ever in memory and mdat is never touched.
+public final class Mp4Inspector {
+
+    private Mp4Inspector() {}
+
+    // Returns null if the file has no readable moov box
+    public static Mp4Info inspect(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            Mp4Info info = new Mp4Info(fileSize);
+
+            long position = 0;
+            while (position + 8 <= fileSize) {
+                Box box = Box.read(channel, position, fileSize);
+                if (box == null) {
+                    return null;
+                }
+                if (box.type.equals("moov")) {
+                    info.moovOffset = box.start;
+                    info.moovSize = box.end - box.start;
+                    readMovie(channel, box, info);
+                    return info.timescale > 0 ? info : null;
+                }
+                position = box.end;
+            }
+            return null;
+        }
+    }
+
+    private static void readMovie(FileChannel channel, Box moov, Mp4Info info) throws IOException {
+        for (long position = moov.body; position + 8 <= moov.end; ) {
+            Box box = Box.read(channel, position, moov.end);
+            if (box == null) {
+                return;
+            }
+            if (box.type.equals("mvhd")) {
+                ByteBuffer body = read(channel, box.body, 32);
+                if (body.get(0) == 1) {
+                    info.timescale = Integer.toUnsignedLong(body.getInt(20));
+                    info.duration = body.getLong(24);
+                } else {
+                    info.timescale = Integer.toUnsignedLong(body.getInt(12));
+                    info.duration = Integer.toUnsignedLong(body.getInt(16));
+                }
+            } else if (box.type.equals("trak")) {
+                readTrack(channel, box, info);
+            }
+            position = box.end;
+        }
+    }
+
+    private static void readTrack(FileChannel channel, Box trak, Mp4Info info) throws IOException {
+        Box tkhd = find(channel, trak, "tkhd");
+        Box mdia = find(channel, trak, "mdia");
+        Box hdlr = mdia != null ? find(channel, mdia, "hdlr") : null;
+        if (tkhd == null || hdlr == null) {
+            return;
+        }
+
+        String handler = fourCc(read(channel, hdlr.body + 8, 4), 0);
+        Box minf = find(channel, mdia, "minf");
+        Box stbl = minf != null ? find(channel, minf, "stbl") : null;
+        Box stsd = stbl != null ? find(channel, stbl, "stsd") : null;
+        // First sample entry sits after version/flags and the entry count
+        String codec = stsd != null ? fourCc(read(channel, stsd.body + 8, 8), 4) : null;
+
+        if (handler.equals("vide") && info.videoCodec == null) {
+            info.videoCodec = codec;
+            // Width and height are 16.16 fixed point at the end of tkhd
+            ByteBuffer body = read(channel, tkhd.body, (int) Math.min(96, tkhd.end - tkhd.body));
+            int sizeOffset = body.capacity() > 0 && body.get(0) == 1 ? 88 : 76;
+            if (body.capacity() >= sizeOffset + 8) {
+                info.width = body.getInt(sizeOffset) >>> 16;
+                info.height = body.getInt(sizeOffset + 4) >>> 16;
+            }
+        } else if (handler.equals("soun") && info.audioCodec == null) {
+            info.audioCodec = codec;
+        }
+    }
+
+    private static Box find(FileChannel channel, Box parent, String type) throws IOException {
+        for (long position = parent.body; position + 8 <= parent.end; ) {
+            Box box = Box.read(channel, position, parent.end);
+            if (box == null) {
+                return null;
+            }
+            if (box.type.equals(type)) {
+                return box;
+            }
+            position = box.end;
+        }
+        return null;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer;
+    }
+
+    private static String fourCc(ByteBuffer buffer, int index) {
+        char[] type = new char[4];
+        for (int i = 0; i < 4; i++) {
+            type[i] = (char) (buffer.get(index + i) & 0xFF);
+        }
+        return new String(type);
+    }
+
+    private static final class Box {
+        private final String type;
+        private final long start;
+        private final long body;
+        private final long end;
+
+        private Box(String type, long start, long body, long end) {
+            this.type = type;
+            this.start = start;
+            this.body = body;
+            this.end = end;
+        }
+
+        // Returns null if the header is malformed or runs past the parent
+        private static Box read(FileChannel channel, long position, long limit) throws IOException {
+            ByteBuffer header = Mp4Inspector.read(channel, position, (int) Math.min(16, limit - position));
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            long headerSize = 8;
+            if (size == 1) {
+                if (header.capacity() < 16) {
+                    return null;
+                }
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = limit - position;
+            }
+            if (size < headerSize || position + size > limit) {
+                return null;
+            }
+            return new Box(fourCc(header, 4), position, position + headerSize, position + size);
+        }
+    }
+
+    public static final class Mp4Info {
+        private final long fileSize;
+        private long timescale;
+        private long duration;
+        private long moovOffset;
+        private long moovSize;
+        private Integer width;
+        private Integer height;
+        private String videoCodec;
+        private String audioCodec;
+
+        private Mp4Info(long fileSize) {
+            this.fileSize = fileSize;
+        }
+
+        public long getDurationMillis() {
+            return timescale > 0 ? duration * 1000 / timescale : 0;
+        }
+
+        public int getDurationSeconds() {
+            return (int) Math.round(getDurationMillis() / 1000.0);
+        }
+
+        // Average over the whole file, container overhead included
+        public Integer getBitrateKbps() {
+            long millis = getDurationMillis();
+            return millis > 0 ? (int) (fileSize * 8 / millis) : null;
+        }
+
+        public long getMoovOffset() {
+            return moovOffset;
+        }
+
+        public long getMoovSize() {
+            return moovSize;
+        }
+
+        public Integer getWidth() {
+            return width;
+        }
+
+        public Integer getHeight() {
+            return height;
+        }
+
+        public String getVideoCodec() {
+            return videoCodec;
+        }
+
+        public String getAudioCodec() {
+            return audioCodec;
+        }
+
+        public boolean hasAudio() {
+            return audioCodec != null;
+        }
+    }
+}
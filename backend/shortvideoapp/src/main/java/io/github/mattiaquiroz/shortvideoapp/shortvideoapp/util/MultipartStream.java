@@ -0,0 +1,288 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Incremental multipart/form-data parser over a raw request body. Parts are handed out one
+// at a time as streams that end at the next boundary, so a file part can be written to its
+// destination while it is still arriving; nothing is spooled and at most one buffer of the
+// body is in memory. Reading the next part drains whatever the caller left of the current one.
+public final class MultipartStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+    private static final int MAX_HEADERS = 16;
+
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=(?:\"([^\"]+)\"|([^;\\s]+))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARAM = Pattern.compile("(\\w+)=(?:\"([^\"]*)\"|([^;\\s]*))");
+
+    private final InputStream in;
+    private final long maxBytes;
+    // CRLF + "--" + boundary; the body's first boundary gets the CRLF from the seed below
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+    private boolean eof;
+    private long bytesRead;
+
+    private Part current;
+    private boolean finished;
+
+    public MultipartStream(InputStream in, String boundary, long maxBytes) {
+        this.in = in;
+        this.maxBytes = maxBytes;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[BUFFER_SIZE + delimiter.length];
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        tail = 2;
+    }
+
+    // Boundary parameter of a multipart Content-Type, or null if the type isn't multipart
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return null;
+        }
+        Matcher matcher = BOUNDARY.matcher(contentType);
+        if (!matcher.find()) {
+            return null;
+        }
+        String boundary = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+        return boundary.length() <= 70 ? boundary : null;
+    }
+
+    // Returns the next part, or null after the closing boundary
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current != null) {
+            current.body.skipAll();
+        } else {
+            // Skip the preamble up to the first boundary
+            new PartInputStream().skipAll();
+        }
+        head += delimiter.length;
+
+        if (!ensure(2)) {
+            throw new EOFException("Multipart body ended inside a boundary");
+        }
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            current = null;
+            return null;
+        }
+        // Rest of the boundary line (transport padding is allowed before the CRLF)
+        readLine();
+
+        Part part = new Part();
+        for (int count = 0; ; count++) {
+            String line = readLine();
+            if (line.isEmpty()) {
+                break;
+            }
+            if (count >= MAX_HEADERS) {
+                throw new IllegalArgumentException("Too many multipart headers");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Malformed multipart header");
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (name.equals("content-disposition")) {
+                Matcher matcher = PARAM.matcher(value);
+                while (matcher.find()) {
+                    String param = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+                    if (matcher.group(1).equalsIgnoreCase("name")) {
+                        part.name = param;
+                    } else if (matcher.group(1).equalsIgnoreCase("filename")) {
+                        part.filename = param;
+                    }
+                }
+            } else if (name.equals("content-type")) {
+                part.contentType = value;
+            }
+        }
+        current = part;
+        return part;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private String readLine() throws IOException {
+        int scanned = head;
+        while (true) {
+            for (; scanned + 1 < tail; scanned++) {
+                if (buffer[scanned] == '\r' && buffer[scanned + 1] == '\n') {
+                    String line = new String(buffer, head, scanned - head, StandardCharsets.ISO_8859_1);
+                    head = scanned + 2;
+                    return line;
+                }
+            }
+            if (scanned - head > MAX_HEADER_LINE) {
+                throw new IllegalArgumentException("Multipart header line too long");
+            }
+            int shift = head;
+            if (!fill()) {
+                throw new EOFException("Multipart body ended inside part headers");
+            }
+            scanned -= shift;
+        }
+    }
+
+    // Makes at least n unread bytes available; false if the body ends first
+    private boolean ensure(int n) throws IOException {
+        while (tail - head < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Moves unread bytes to the front and reads more. False once the body is exhausted.
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        bytesRead += read;
+        if (maxBytes > 0 && bytesRead > maxBytes) {
+            throw new SizeLimitExceededException("Request body exceeds " + maxBytes + " bytes");
+        }
+        tail += read;
+        return true;
+    }
+
+    // Index of the delimiter in the unread bytes, or -1
+    private int findDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            if (buffer[i] != '\r') {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public final class Part {
+        private String name;
+        private String filename;
+        private String contentType;
+        private final PartInputStream body = new PartInputStream();
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public boolean isFile() {
+            return filename != null;
+        }
+
+        // Body of the part; ends at the next boundary
+        public InputStream getInputStream() {
+            return body;
+        }
+
+        // Body of a form field as UTF-8
+        public String getValue(int maxBytes) throws IOException {
+            byte[] value = body.readNBytes(maxBytes + 1);
+            if (value.length > maxBytes) {
+                throw new SizeLimitExceededException("Form field '" + name + "' exceeds " + maxBytes + " bytes");
+            }
+            return new String(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final class PartInputStream extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int available;
+                int at = findDelimiter();
+                if (at >= 0) {
+                    available = at - head;
+                    if (available == 0) {
+                        // Leaves head on the delimiter for nextPart
+                        done = true;
+                        return -1;
+                    }
+                } else {
+                    // Hold back a tail that could be the start of a delimiter
+                    available = tail - head - (delimiter.length - 1);
+                }
+                if (available > 0) {
+                    int count = Math.min(len, available);
+                    System.arraycopy(buffer, head, b, off, count);
+                    head += count;
+                    return count;
+                }
+                if (!fill()) {
+                    throw new EOFException("Multipart body ended before the closing boundary");
+                }
+            }
+        }
+
+        private void skipAll() throws IOException {
+            byte[] scratch = new byte[8192];
+            while (read(scratch, 0, scratch.length) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    public static class SizeLimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public SizeLimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.mattiaquiroz.shortvideoapp.shortvideoapp.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// Fixed-size direct buffers handed out from a bounded off-heap budget. Slabs are allocated
+// lazily and recycled through a free list, so a cache built on top never churns the GC or
+// grows beyond its configured capacity.
+public final class SlabArena {
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private int allocated;
+
+    public SlabArena(long capacityBytes, int slabSize) {
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, capacityBytes / slabSize);
+    }
+
+    public int slabSize() {
+        return slabSize;
+    }
+
+    public int slabsFor(long bytes) {
+        return (int) ((bytes + slabSize - 1) / slabSize);
+    }
+
+    public synchronized int availableSlabs() {
+        return free.size() + (maxSlabs - allocated);
+    }
+
+    public synchronized long usedBytes() {
+        return (long) (allocated - free.size()) * slabSize;
+    }
+
+    public long capacityBytes() {
+        return (long) maxSlabs * slabSize;
+    }
+
+    // Returns enough cleared slabs to hold the given number of bytes, or null if the
+    // budget is exhausted
+    public synchronized ByteBuffer[] allocate(long bytes) {
+        int count = slabsFor(bytes);
+        if (count > availableSlabs()) {
+            return null;
+        }
+        ByteBuffer[] slabs = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            ByteBuffer slab = free.poll();
+            if (slab == null) {
+                slab = ByteBuffer.allocateDirect(slabSize);
+                allocated++;
+            }
+            slab.clear();
+            slabs[i] = slab;
+        }
+        return slabs;
+    }
+
+    public synchronized void release(ByteBuffer[] slabs) {
+        for (ByteBuffer slab : slabs) {
+            free.push(slab);
+        }
+    }
+}